@@ -0,0 +1,62 @@
+package benchmark;
+
+import Model.AdmissionGate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pruebas de {@link AdmissionGate}, el control de clientes simultáneos que
+ * sustituye al antiguo contador <code>NumThread</code>.
+ *
+ * @author Alder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AdmissionGateBenchmark {
+
+    private AdmissionGate gate;
+
+    @Setup
+    public void setUp() {
+        gate = new AdmissionGate(4);
+    }
+
+    @Benchmark
+    public boolean acquireRelease() {
+        boolean acquired = gate.tryAcquire();
+        if (acquired) {
+            gate.release();
+        }
+        return acquired;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean acquireReleaseFourThreads() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean acquireReleaseSixteenThreads() {
+        return acquireRelease();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta las pruebas de rendimiento con JMH y guarda los resultados en JSON.
+ *
+ * <p>Las clases de pruebas usan las anotaciones de JMH; su procesador de
+ * anotaciones genera al compilar el código que las mide. Cada prueba se
+ * ejecuta en <code>@Fork</code> JVM nuevas, con las iteraciones de
+ * calentamiento y de medida que indican sus anotaciones.</p>
+ *
+ * <p>Uso:</p>
+ * <pre>
+ * java benchmark.BenchmarkRunner [opciones de JMH] [expresión]
+ * </pre>
+ * <p>Admite las opciones de la línea de comandos de JMH, por ejemplo
+ * <code>-f 1 -wi 3 -i 5 -w 1s -r 1s</code>; la expresión regular filtra las
+ * pruebas por su nombre. Si no se indica <code>-rff</code>, los resultados se
+ * escriben en <code>benchmark-results.json</code>.</p>
+ *
+ * @author Alder
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Punto de entrada.
+     *
+     * @param args Las opciones de JMH y el filtro.
+     * @throws Exception Si las opciones no son válidas o falla una prueba.
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        Path resultFile = Paths.get(options.getResult().orElse("benchmark-results.json"));
+        Path parent = resultFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        builder.result(resultFile.toString());
+        new Runner(builder.build()).run();
+        System.out.println("Resultados en " + resultFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import database.DBPool;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pruebas de {@link DBPool} con las conexiones de {@link StubDriver}.
+ *
+ * <p>El tamaño del pool y el resto de opciones salen del
+ * <code>config/config.properties</code> de este proyecto. Con más hilos que
+ * conexiones se mide también la espera por una conexión libre.</p>
+ *
+ * @author Alder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DBPoolBenchmark {
+
+    private static final String SQL = "SELECT 1";
+
+    private DBPool pool;
+
+    @Setup
+    public void setUp() throws Exception {
+        StubDriver.register();
+        pool = DBPool.getInstance();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(pool.getConnectionStatistics());
+        System.out.println(pool.getStatementCacheStatistics());
+    }
+
+    @Benchmark
+    public void getRelease() throws Exception {
+        Connection connection = pool.getConnection();
+        pool.releaseConnection(connection);
+    }
+
+    @Benchmark
+    @Threads(2)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void getReleaseTwoThreads() throws Exception {
+        getRelease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void getReleaseEightThreads() throws Exception {
+        getRelease();
+    }
+
+    @Benchmark
+    public PreparedStatement getPrepareRelease() throws Exception {
+        Connection connection = pool.getConnection();
+        try {
+            return pool.prepareStatement(connection, SQL);
+        } finally {
+            pool.releaseConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import Model.Message;
+import Model.MessageCodec;
+import Model.TipoMensaje;
+import Model.User;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pruebas de la serialización de {@link Message}: la serialización de Java
+ * que usa el protocolo original y las tramas de {@link MessageCodec}.
+ *
+ * @author Alder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+
+    private Message message;
+    private byte[] serialized;
+    private byte[] frame;
+
+    @Setup
+    public void setUp() throws IOException {
+        message = new Message();
+        message.setTipo(TipoMensaje.SIGN_UP_REQUEST);
+        message.setUser(new User("usuario@example.com", "abcd*1234", "Usuario de prueba", true, 1,
+                "Calle Mayor 1", "Bilbao", 48001));
+        serialized = javaSerialize();
+        frame = MessageCodec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return ois.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return MessageCodec.encode(message);
+    }
+
+    @Benchmark
+    public Message codecDecode() throws IOException {
+        return MessageCodec.decode(frame, frame.length);
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import database.PasswordHasher;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pruebas de {@link PasswordHasher} con distintas iteraciones, para elegir
+ * <code>dao.password.hash.iterations</code>.
+ *
+ * <p>Las pruebas de un hilo ocupan un único hilo del pool de hashes, así que
+ * su puntuación es el tiempo de comprobar una contraseña en un núcleo: un
+ * núcleo admite 10^9 / puntuación inicios de sesión por segundo. La prueba de
+ * 16 hilos muestra que, con más peticiones que núcleos, el pool no pasa de un
+ * hash por núcleo a la vez.</p>
+ *
+ * @author Alder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "abcd*1234";
+
+    private PasswordHasher cost1000;
+    private PasswordHasher cost10000;
+    private PasswordHasher cost25000;
+    private PasswordHasher cost100000;
+    private String hash1000;
+    private String hash10000;
+    private String hash25000;
+    private String hash100000;
+
+    @Setup
+    public void setUp() throws Exception {
+        cost1000 = new PasswordHasher(1000, 0, 1000);
+        cost10000 = new PasswordHasher(10000, 0, 1000);
+        cost25000 = new PasswordHasher(25000, 0, 1000);
+        cost100000 = new PasswordHasher(100000, 0, 1000);
+        hash1000 = cost1000.hash(PASSWORD);
+        hash10000 = cost10000.hash(PASSWORD);
+        hash25000 = cost25000.hash(PASSWORD);
+        hash100000 = cost100000.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyPlain() throws Exception {
+        return cost1000.verify(PASSWORD, PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify1000Iterations() throws Exception {
+        return cost1000.verify(PASSWORD, hash1000);
+    }
+
+    @Benchmark
+    public boolean verify10000Iterations() throws Exception {
+        return cost10000.verify(PASSWORD, hash10000);
+    }
+
+    @Benchmark
+    public boolean verify25000Iterations() throws Exception {
+        return cost25000.verify(PASSWORD, hash25000);
+    }
+
+    @Benchmark
+    public boolean verify100000Iterations() throws Exception {
+        return cost100000.verify(PASSWORD, hash100000);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean verify25000IterationsSixteenThreads() throws Exception {
+        return verify25000Iterations();
+    }
+}
@@ -0,0 +1,145 @@
+package benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Driver JDBC en memoria para las pruebas de {@link database.DBPool}, que así
+ * no necesitan una base de datos.
+ *
+ * <p>Acepta las URL <code>jdbc:stub:</code>. Sus conexiones son válidas hasta
+ * que se cierran, sus sentencias preparadas no devuelven filas y el resto de
+ * métodos devuelven el valor por defecto de su tipo. Solo mide el coste del
+ * pool, no el de la red ni el de la base de datos.</p>
+ *
+ * @author Alder
+ */
+public final class StubDriver implements Driver {
+
+    private static final String PREFIX = "jdbc:stub:";
+
+    private static final StubDriver INSTANCE = new StubDriver();
+
+    private static boolean registered;
+
+    private StubDriver() {
+    }
+
+    /**
+     * Registra el driver en el {@link DriverManager} si no lo estaba.
+     *
+     * @throws SQLException Si no se puede registrar.
+     */
+    public static synchronized void register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(INSTANCE);
+            registered = true;
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        boolean[] closed = {false};
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isClosed":
+                    return closed[0];
+                case "isValid":
+                    return !closed[0];
+                case "close":
+                    closed[0] = true;
+                    return null;
+                case "getAutoCommit":
+                    return true;
+                case "prepareStatement":
+                    return newStatement();
+                default:
+                    return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+            }
+        });
+    }
+
+    private static PreparedStatement newStatement() {
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return proxy(ResultSet.class, (rs, m, a) -> defaultValue(rs, m.getName(), m.getReturnType(), a));
+                case "executeUpdate":
+                    return 1;
+                default:
+                    return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+            }
+        });
+    }
+
+    private static Object defaultValue(Object proxy, String name, Class<?> type, Object[] args) {
+        switch (name) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "stub";
+            default:
+                break;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StubDriver.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
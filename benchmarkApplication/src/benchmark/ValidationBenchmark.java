@@ -0,0 +1,36 @@
+package benchmark;
+
+import Utils.UtilsMethods;
+import exception.InvalidEmailFormatException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pruebas de {@link UtilsMethods#validateEmail(String)} con emails válidos.
+ * Los inválidos no se miden porque abren una alerta de JavaFX.
+ *
+ * @author Alder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private final UtilsMethods utils = new UtilsMethods();
+
+    @Benchmark
+    public void validateEmail() throws InvalidEmailFormatException {
+        utils.validateEmail("usuario.prueba@example.com");
+    }
+}
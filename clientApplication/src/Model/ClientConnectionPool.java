@@ -0,0 +1,220 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La clase <code>ClientConnectionPool</code> mantiene abiertos un número pequeño
+ * de sockets con el servidor para que {@link SignerClient} pueda enviar varias
+ * peticiones seguidas sin pagar en cada una la conexión TCP.
+ *
+ * <p>
+ * Cada socket atiende una petición cada vez: se escribe el mensaje y se espera
+ * su respuesta antes de devolver el socket al pool. Cada mensaje se envía como
+ * una trama de {@link MessageCodec} o como un flujo de serialización completo,
+ * igual que en una conexión de un solo uso, así que el servidor lo trata de la
+ * misma forma.
+ * </p>
+ * <p>
+ * El servidor cierra las conexiones inactivas. Si una petición falla sobre un
+ * socket reutilizado, se descarta y solo se repite con un socket nuevo cuando
+ * repetirla no tiene efectos: si el mensaje no llegó a escribirse o si es un
+ * inicio de sesión. Un registro que pudo llegar al servidor no se reenvía,
+ * porque crearía el usuario dos veces; antes de enviarlo se comprueba que el
+ * servidor no haya cerrado ya el socket reutilizado.
+ * </p>
+ *
+ * @author Alder
+ * @see SignerClient
+ */
+public class ClientConnectionPool {
+
+    /**
+     * Logger para registrar eventos y mensajes.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ClientConnectionPool.class.getName());
+
+    /**
+     * Dirección IP del servidor.
+     */
+    private final String host;
+
+    /**
+     * Puerto del servidor.
+     */
+    private final int port;
+
+    /**
+     * Sockets abiertos que no se están usando; el más reciente primero.
+     */
+    private final LinkedBlockingDeque<PooledSocket> idle = new LinkedBlockingDeque<>();
+
+    /**
+     * Un permiso por cada socket que puede estar en uso a la vez.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Indica si los mensajes se envían con {@link MessageCodec}.
+     */
+    private final boolean binary;
+
+    /**
+     * Crea el pool de conexiones.
+     *
+     * @param host La dirección del servidor.
+     * @param port El puerto del servidor.
+     * @param size El número máximo de sockets abiertos.
+     * @param binary true para enviar tramas de {@link MessageCodec}, false para
+     * usar la serialización de Java.
+     */
+    public ClientConnectionPool(String host, int port, int size, boolean binary) {
+        this.host = host;
+        this.port = port;
+        this.binary = binary;
+        this.permits = new Semaphore(Math.max(1, size), true);
+    }
+
+    /**
+     * Envía un mensaje y espera su respuesta usando un socket del pool.
+     *
+     * @param request El mensaje a enviar.
+     * @return El mensaje de respuesta del servidor.
+     * @throws IOException Si no se puede comunicar con el servidor.
+     * @throws ClassNotFoundException Si la respuesta no es un objeto conocido.
+     */
+    public Message exchange(Message request) throws IOException, ClassNotFoundException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando una conexión con el servidor.");
+        }
+        try {
+            boolean idempotent = request.getTipo() == TipoMensaje.SIGN_IN_REQUEST;
+            PooledSocket socket;
+            while ((socket = idle.pollFirst()) != null) {
+                if (idempotent || socket.isOpen()) {
+                    break;
+                }
+                socket.close();
+            }
+            if (socket != null) {
+                try {
+                    Message response = socket.exchange(request);
+                    idle.offerFirst(socket);
+                    return response;
+                } catch (IllegalArgumentException e) {
+                    // El mensaje no cabe en una trama y no se ha escrito nada
+                    idle.offerFirst(socket);
+                    throw e;
+                } catch (IOException e) {
+                    socket.close();
+                    if (socket.written && !idempotent) {
+                        throw e;
+                    }
+                    // El servidor pudo cerrar la conexión por inactividad
+                    LOGGER.log(Level.FINE, "Socket reutilizado cerrado, reintentando con uno nuevo", e);
+                }
+            }
+            socket = new PooledSocket(new Socket(host, port), binary);
+            try {
+                Message response = socket.exchange(request);
+                idle.offerFirst(socket);
+                return response;
+            } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+                socket.close();
+                throw e;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Cierra todos los sockets abiertos.
+     */
+    public void close() {
+        PooledSocket socket;
+        while ((socket = idle.pollFirst()) != null) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Socket abierto con el servidor y sus flujos.
+     */
+    private static class PooledSocket {
+
+        private final Socket socket;
+        private final InputStream input;
+        private final OutputStream output;
+        private final boolean binary;
+        private boolean written; // Si el último mensaje llegó a escribirse entero
+
+        PooledSocket(Socket socket, boolean binary) throws IOException {
+            this.socket = socket;
+            this.input = new BufferedInputStream(socket.getInputStream());
+            this.output = socket.getOutputStream();
+            this.binary = binary;
+        }
+
+        Message exchange(Message request) throws IOException, ClassNotFoundException {
+            written = false;
+            if (binary) {
+                MessageCodec.write(output, request);
+                written = true;
+                return MessageCodec.read(input);
+            }
+            ObjectOutputStream oos = new ObjectOutputStream(output);
+            oos.writeObject(request);
+            oos.flush();
+            written = true;
+            return (Message) new ObjectInputStream(input).readObject();
+        }
+
+        /**
+         * Comprueba sin bloquear más de un milisegundo que el servidor no ha
+         * cerrado el socket mientras estaba en el pool.
+         */
+        boolean isOpen() {
+            try {
+                socket.setSoTimeout(1);
+                input.mark(1);
+                if (input.read() < 0) {
+                    return false;
+                }
+                input.reset();
+                return true;
+            } catch (SocketTimeoutException e) {
+                return true;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                try {
+                    socket.setSoTimeout(0);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Error al restaurar el timeout del socket", e);
+                }
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error al cerrar el socket", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La clase <code>PipelinedConnection</code> envía peticiones al servidor por un
+ * único socket sin esperar la respuesta de cada una.
+ *
+ * <p>
+ * Cada petición lleva un identificador de correlación y queda pendiente hasta
+ * que llega la respuesta con el mismo identificador. Un hilo lector recibe las
+ * respuestas en el orden en que el servidor las termina y completa el futuro
+ * correspondiente, así que una petición lenta no retrasa a las demás.
+ * </p>
+ * <p>
+ * Si la conexión se cierra, por ejemplo porque el servidor la cierra por
+ * inactividad, las peticiones pendientes fallan con una {@link IOException} y
+ * la siguiente petición abre un socket nuevo.
+ * </p>
+ *
+ * @author Alder
+ * @see SignerClient
+ */
+public class PipelinedConnection {
+
+    /**
+     * Logger para registrar eventos y mensajes.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PipelinedConnection.class.getName());
+
+    /**
+     * Dirección IP del servidor.
+     */
+    private final String host;
+
+    /**
+     * Puerto del servidor.
+     */
+    private final int port;
+
+    /**
+     * Indica si los mensajes se envían con {@link MessageCodec}.
+     */
+    private final boolean binary;
+
+    /**
+     * Último identificador de correlación asignado.
+     */
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Conexión abierta con el servidor, o null si todavía no hay ninguna.
+     */
+    private Channel channel;
+
+    /**
+     * Hilo que vence las esperas de {@link #send(Message, long)}; se crea en
+     * el primer uso y es daemon para no impedir que la aplicación termine.
+     */
+    private static class TimeoutHolder {
+        private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pipelined-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Crea la conexión; el socket se abre con la primera petición.
+     *
+     * @param host La dirección del servidor.
+     * @param port El puerto del servidor.
+     * @param binary true para enviar tramas de {@link MessageCodec}, false para
+     * usar la serialización de Java.
+     */
+    public PipelinedConnection(String host, int port, boolean binary) {
+        this.host = host;
+        this.port = port;
+        this.binary = binary;
+    }
+
+    /**
+     * Envía una petición sin esperar su respuesta. Asigna a la petición un
+     * identificador de correlación nuevo.
+     *
+     * @param request El mensaje a enviar.
+     * @return Un futuro con la respuesta, que falla con una {@link IOException}
+     * si no se puede comunicar con el servidor.
+     */
+    public CompletableFuture<Message> send(Message request) {
+        CompletableFuture<Message> response = new CompletableFuture<>();
+        long id = lastId.incrementAndGet();
+        request.setCorrelationId(id);
+        Channel current;
+        try {
+            current = getChannel();
+        } catch (IOException e) {
+            response.completeExceptionally(e);
+            return response;
+        }
+        current.pending.put(id, response);
+        // Quien deja de esperar la respuesta la cancela; no se guarda más
+        response.whenComplete((message, error) -> current.pending.remove(id, response));
+        try {
+            current.write(request);
+        } catch (IOException e) {
+            current.fail(e);
+        } catch (IllegalArgumentException e) {
+            // El mensaje no cabe en una trama y no se ha escrito nada: la conexión sigue sirviendo
+            response.completeExceptionally(e);
+            return response;
+        }
+        if (current.closed && current.pending.remove(id) != null) {
+            // La conexión se cerró antes de registrar la petición
+            response.completeExceptionally(new IOException("Conexión con el servidor cerrada."));
+        }
+        return response;
+    }
+
+    /**
+     * Envía una petición sin esperar su respuesta y la da por fallida si no
+     * llega a tiempo.
+     *
+     * @param request El mensaje a enviar.
+     * @param timeoutMs Tiempo máximo de espera de la respuesta.
+     * @return Un futuro con la respuesta, que falla con una
+     * {@link SocketTimeoutException} si no llega en <code>timeoutMs</code> y
+     * con una {@link IOException} si no se puede comunicar con el servidor.
+     */
+    public CompletableFuture<Message> send(Message request, long timeoutMs) {
+        CompletableFuture<Message> response = send(request);
+        if (response.isDone()) {
+            return response;
+        }
+        // Completar el futuro también lo quita de las peticiones pendientes
+        ScheduledFuture<?> timeout = TimeoutHolder.scheduler.schedule(() -> response.completeExceptionally(
+                new SocketTimeoutException("El servidor no ha respondido en " + timeoutMs + " ms.")),
+                timeoutMs, TimeUnit.MILLISECONDS);
+        response.whenComplete((message, error) -> timeout.cancel(false));
+        return response;
+    }
+
+    /**
+     * Cierra el socket; las peticiones pendientes fallan.
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            channel.fail(new IOException("Conexión cerrada por el cliente."));
+            channel = null;
+        }
+    }
+
+    /**
+     * Devuelve la conexión abierta o abre una nueva si la anterior se cerró.
+     */
+    private synchronized Channel getChannel() throws IOException {
+        if (channel == null || channel.closed) {
+            channel = new Channel(new Socket(host, port));
+        }
+        return channel;
+    }
+
+    /**
+     * Socket abierto con el servidor, sus peticiones pendientes y su hilo lector.
+     */
+    private class Channel implements Runnable {
+
+        private final Socket socket;
+        private final InputStream input;
+        private final OutputStream output;
+        private final Map<Long, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+        private volatile boolean closed;
+
+        Channel(Socket socket) throws IOException {
+            this.socket = socket;
+            this.input = new BufferedInputStream(socket.getInputStream());
+            this.output = socket.getOutputStream();
+            Thread reader = new Thread(this, "signer-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        synchronized void write(Message request) throws IOException {
+            if (binary) {
+                MessageCodec.write(output, request);
+                return;
+            }
+            ObjectOutputStream oos = new ObjectOutputStream(output);
+            oos.writeObject(request);
+            oos.flush();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    Message response = binary
+                            ? MessageCodec.read(input)
+                            : (Message) new ObjectInputStream(input).readObject();
+                    CompletableFuture<Message> future = pending.remove(response.getCorrelationId());
+                    if (future != null) {
+                        future.complete(response);
+                    } else {
+                        LOGGER.warning("Respuesta sin petición pendiente: " + response.getCorrelationId());
+                    }
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Cierra el socket y hace fallar las peticiones pendientes.
+         */
+        void fail(Exception cause) {
+            if (!closed) {
+                closed = true;
+                LOGGER.log(Level.FINE, "Conexión con el servidor cerrada", cause);
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Error al cerrar el socket", e);
+                }
+            }
+            IOException error = cause instanceof IOException
+                    ? (IOException) cause
+                    : new IOException("Respuesta no válida del servidor.", cause);
+            Iterator<CompletableFuture<Message>> it = pending.values().iterator();
+            while (it.hasNext()) {
+                CompletableFuture<Message> future = it.next();
+                it.remove();
+                future.completeExceptionally(error);
+            }
+        }
+    }
+}
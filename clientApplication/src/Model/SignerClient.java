@@ -5,14 +5,27 @@ import static Utils.UtilsMethods.logger;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.logging.Logger;
 import exception.*;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStreamReader;
+import java.net.SocketTimeoutException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 /**
@@ -30,6 +43,27 @@ import java.util.logging.Level;
  * la conexión al servidor, incluyendo la dirección IP y el puerto. Además, emplea un
  * {@link Logger} para registrar eventos significativos y errores durante la ejecución.
  * </p>
+ * <p>
+ * Con <code>CLIENT_PERSISTENT=true</code> las peticiones se envían por sockets que
+ * se mantienen abiertos en un {@link ClientConnectionPool}, en lugar de abrir y
+ * cerrar un socket por cada petición.
+ * </p>
+ * <p>
+ * Con <code>WIRE_FORMAT=binary</code> los mensajes se envían como tramas de
+ * {@link MessageCodec}; con <code>WIRE_FORMAT=java</code> se sigue usando la
+ * serialización de Java. El servidor acepta los dos formatos y responde en el
+ * mismo que la petición.
+ * </p>
+ * <p>
+ * Los métodos <code>signInAsync</code> y <code>signUpAsync</code> devuelven un
+ * {@link CompletableFuture} que falla con las mismas excepciones que los métodos
+ * bloqueantes. Con <code>CLIENT_PIPELINING=true</code> todas las peticiones
+ * se envían por una {@link PipelinedConnection} sin esperar las respuestas, que
+ * se emparejan con su petición por el identificador de correlación; así puede
+ * haber cientos de peticiones en curso sin un hilo por cada una. Si no, los
+ * intercambios asíncronos se hacen en hasta <code>CLIENT_ASYNC_THREADS</code>
+ * hilos y el resto de peticiones espera en cola sin bloquear a quien llama.
+ * </p>
  *
  * @author Alder
  * @see Signable
@@ -56,15 +90,62 @@ public class SignerClient implements Signable {
      */
     private static final Logger LOGGER = Logger.getLogger("/Model/SignerClient");
 
+    /**
+     * Indica si se reutilizan conexiones abiertas con el servidor.
+     */
+    private static final boolean PERSISTENT = Boolean.parseBoolean(archivo.getString("CLIENT_PERSISTENT"));
+
+    /**
+     * Número máximo de sockets abiertos en modo persistente.
+     */
+    private static final int POOL_SIZE = Integer.parseInt(archivo.getString("CLIENT_POOL_SIZE"));
+
+    /**
+     * Indica si los mensajes se envían con {@link MessageCodec} en lugar de la
+     * serialización de Java.
+     */
+    private static final boolean BINARY = "binary".equalsIgnoreCase(archivo.getString("WIRE_FORMAT"));
+
+    /**
+     * Número de hilos que hacen los intercambios asíncronos.
+     */
+    private static final int ASYNC_THREADS = Integer.parseInt(archivo.getString("CLIENT_ASYNC_THREADS"));
+
+    /**
+     * Indica si las peticiones se envían sin esperar las respuestas anteriores.
+     */
+    private static final boolean PIPELINING = Boolean.parseBoolean(archivo.getString("CLIENT_PIPELINING"));
+
+    /**
+     * Tiempo máximo que una petición espera su respuesta por la
+     * {@link PipelinedConnection}.
+     */
+    private static final long RESPONSE_TIMEOUT_MS = Long.parseLong(archivo.getString("CLIENT_RESPONSE_TIMEOUT_MS"));
+
+    /**
+     * Número máximo de usuarios en cada mensaje de registro por lotes.
+     */
+    private static final int BATCH_SIZE = Integer.parseInt(archivo.getString("CLIENT_BATCH_SIZE"));
+
     /**
      * Tipo de mensaje utilizado para la comunicación con el servidor.
      */
     TipoMensaje mt;
 
     /**
-     * Mensaje que se utilizará para la comunicación con el servidor.
+     * Sockets reutilizados en modo persistente; null si cada petición abre su socket.
+     */
+    private final ClientConnectionPool connectionPool = PERSISTENT ? new ClientConnectionPool(HOST, PUERTO, POOL_SIZE, BINARY) : null;
+
+    /**
+     * Conexión con peticiones en paralelo; null si no se usa.
+     */
+    private final PipelinedConnection pipelinedConnection = PIPELINING ? new PipelinedConnection(HOST, PUERTO, BINARY) : null;
+
+    /**
+     * Hilos de los intercambios asíncronos; se crean en el primer uso.
      */
-    private Message msg = null;
+    private volatile ExecutorService asyncExecutor;
 
     /**
      * Registra un nuevo usuario en el sistema.
@@ -87,47 +168,129 @@ public class SignerClient implements Signable {
      */
     @Override
     public User signUp(User user) throws Exception {
-        ObjectOutputStream oos = null;
-        ObjectInputStream ois = null;
-
         try {
             LOGGER.info("Iniciando sesión de registro...");
 
-            Socket socketCliente = new Socket(HOST, PUERTO);
-            oos = new ObjectOutputStream(socketCliente.getOutputStream());
-
-            msg = new Message();
+            Message msg = new Message();
             msg.setUser(user);
             msg.setTipo(TipoMensaje.SIGN_UP_REQUEST);
 
-            oos.writeObject(msg);
-
-            ois = new ObjectInputStream(socketCliente.getInputStream());
-            msg = (Message) ois.readObject();
-            user = msg.getUser();
-
-            oos.close();
-            ois.close();
-            socketCliente.close();
-
-            switch (msg.getTipo()) {
-                case OK_RESPONSE:
-                    return user;
-                case EMAIL_EXISTS:
-                    throw new UserAlreadyExistsException("El email ya existe.");
-                case CONNECTION_ERROR:
-                    throw new ConnectionException("Error en la conexión con la base de datos.");
-                case SERVER_ERROR:
-                    throw new ServerErrorException("El servidor no está disponible.");
-                default:
-                    throw new Exception("Respuesta desconocida del servidor.");
-            }
+            return signUpResponse(exchange(msg));
         } catch (ClassNotFoundException | IOException ex) {
             LOGGER.log(Level.SEVERE, "Error en el método signUp", ex);
             throw new ServerErrorException("Error de comunicación con el servidor.");
         }
     }
 
+    /**
+     * Registra un nuevo usuario sin bloquear a quien llama.
+     *
+     * @param user El usuario que se desea registrar.
+     * @return Un futuro con el usuario registrado, que falla con las mismas
+     * excepciones que {@link #signUp(User)}.
+     */
+    @Override
+    public CompletableFuture<User> signUpAsync(User user) {
+        Message msg = new Message();
+        msg.setUser(user);
+        msg.setTipo(TipoMensaje.SIGN_UP_REQUEST);
+        return exchangeAsync(msg, this::signUpResponse, "Error de comunicación con el servidor.");
+    }
+
+    /**
+     * Interpreta la respuesta del servidor a una petición de registro.
+     *
+     * @param msg El mensaje de respuesta.
+     * @return El usuario registrado.
+     * @throws Exception La excepción que corresponde al tipo de respuesta.
+     */
+    private User signUpResponse(Message msg) throws Exception {
+        switch (msg.getTipo()) {
+            case OK_RESPONSE:
+                return msg.getUser();
+            case EMAIL_EXISTS:
+                throw new UserAlreadyExistsException("El email ya existe.");
+            case CONNECTION_ERROR:
+                throw new ConnectionException("Error en la conexión con la base de datos.");
+            case SERVER_ERROR:
+                throw new ServerErrorException("El servidor no está disponible.");
+            default:
+                throw new Exception("Respuesta desconocida del servidor.");
+        }
+    }
+
+    /**
+     * Registra una lista de usuarios y devuelve el resultado de cada uno.
+     *
+     * <p>
+     * La lista se envía en mensajes de hasta <code>CLIENT_BATCH_SIZE</code>
+     * usuarios que no pasan de {@link MessageCodec#MAX_BODY_BYTES}, porque el
+     * servidor cierra la conexión si recibe una trama mayor. Todos los mensajes se envían antes de esperar las respuestas,
+     * así que con peticiones en paralelo el servidor los procesa a la vez.
+     * </p>
+     *
+     * @param users Los usuarios que se desean registrar.
+     * @return El resultado de cada usuario, en el mismo orden que la lista.
+     * @throws Exception Si algún mensaje del lote no se ha podido procesar.
+     * @throws ConnectionException Si ocurre un error en la conexión con la base de datos.
+     * @throws ServerErrorException Si ocurre un error en el servidor.
+     * @throws MaxThreadUserException Si el máximo de usuarios concurrentes ha sido alcanzado.
+     */
+    @Override
+    public List<SignUpStatus> signUpBatch(List<User> users) throws Exception {
+        LOGGER.info("Registrando lote de " + users.size() + " usuarios...");
+        List<CompletableFuture<List<SignUpStatus>>> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < users.size()) {
+            int end = start;
+            int bytes = MessageCodec.MAX_BATCH_OVERHEAD_BYTES;
+            // Cada mensaje lleva al menos un usuario; si no cabe solo, encode lo rechaza
+            while (end < users.size() && end - start < BATCH_SIZE) {
+                bytes += MessageCodec.encodedSize(users.get(end));
+                if (end > start && bytes > MessageCodec.MAX_BODY_BYTES) {
+                    break;
+                }
+                end++;
+            }
+            Message msg = new Message();
+            msg.setUsers(new ArrayList<>(users.subList(start, end)));
+            msg.setTipo(TipoMensaje.SIGN_UP_BATCH_REQUEST);
+            chunks.add(exchangeAsync(msg, this::signUpBatchResponse, "Error de comunicación con el servidor."));
+            start = end;
+        }
+        List<SignUpStatus> results = new ArrayList<>(users.size());
+        for (CompletableFuture<List<SignUpStatus>> chunk : chunks) {
+            try {
+                results.addAll(chunk.get());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Interpreta la respuesta del servidor a un mensaje de registro por lotes.
+     *
+     * @param msg El mensaje de respuesta.
+     * @return El resultado de cada usuario del mensaje.
+     * @throws Exception La excepción que corresponde al tipo de respuesta.
+     */
+    private List<SignUpStatus> signUpBatchResponse(Message msg) throws Exception {
+        switch (msg.getTipo()) {
+            case OK_RESPONSE:
+                return msg.getResults();
+            case CONNECTION_ERROR:
+                throw new ConnectionException("Error en la conexión con la base de datos.");
+            case SERVER_ERROR:
+                throw new ServerErrorException("El servidor no está disponible.");
+            case MAX_THREAD_USER:
+                throw new MaxThreadUserException("Máximo de usuarios alcanzado. Intente más tarde.");
+            default:
+                throw new Exception("Respuesta desconocida del servidor.");
+        }
+    }
+
     /**
      * Inicia sesión para un usuario existente.
      *
@@ -150,44 +313,183 @@ public class SignerClient implements Signable {
      */
     @Override
     public User signIn(User user) throws Exception {
-        ObjectOutputStream oos = null;
-        ObjectInputStream ois = null;
-
         try {
             LOGGER.info("Iniciando Sesión...");
-            Socket socketCliente = new Socket(HOST, PUERTO);
 
-            oos = new ObjectOutputStream(socketCliente.getOutputStream());
-            msg = new Message();
+            Message msg = new Message();
             msg.setUser(user);
             msg.setTipo(TipoMensaje.SIGN_IN_REQUEST);
-            oos.writeObject(msg);
-
-            ois = new ObjectInputStream(socketCliente.getInputStream());
-            msg = (Message) ois.readObject();
-            user = msg.getUser();
-
-            oos.close();
-            ois.close();
-            socketCliente.close();
-
-            switch (msg.getTipo()) {
-                case OK_RESPONSE:
-                    return user;
-                case INCORRECT_CREDENTIALS_RESPONSE:
-                    throw new IncorrectCredentialsException("Email o contraseña incorrectos.");
-                case SERVER_ERROR:
-                    throw new ServerErrorException("Ha ocurrido un error en el servidor.");
-                case CONNECTION_ERROR:
-                    throw new ConnectionException("Error en la conexión con la base de datos.");
-                case MAX_THREAD_USER:
-                    throw new MaxThreadUserException("Máximo de usuarios alcanzado. Intente más tarde.");
-                default:
-                    throw new Exception("Respuesta desconocida del servidor.");
-            }
-        } catch (IOException ex) {
+
+            return signInResponse(exchange(msg));
+        } catch (ClassNotFoundException | IOException ex) {
             LOGGER.log(Level.SEVERE, "Error en el método signIn", ex);
             throw new ServerErrorException("Error de entrada/salida en los datos.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Inicia sesión sin bloquear a quien llama.
+     *
+     * @param user El usuario que desea iniciar sesión.
+     * @return Un futuro con el usuario que ha iniciado sesión, que falla con
+     * las mismas excepciones que {@link #signIn(User)}.
+     */
+    @Override
+    public CompletableFuture<User> signInAsync(User user) {
+        Message msg = new Message();
+        msg.setUser(user);
+        msg.setTipo(TipoMensaje.SIGN_IN_REQUEST);
+        return exchangeAsync(msg, this::signInResponse, "Error de entrada/salida en los datos.");
+    }
+
+    /**
+     * Interpreta la respuesta del servidor a una petición de inicio de sesión.
+     *
+     * @param msg El mensaje de respuesta.
+     * @return El usuario que ha iniciado sesión.
+     * @throws Exception La excepción que corresponde al tipo de respuesta.
+     */
+    private User signInResponse(Message msg) throws Exception {
+        switch (msg.getTipo()) {
+            case OK_RESPONSE:
+                return msg.getUser();
+            case INCORRECT_CREDENTIALS_RESPONSE:
+                throw new IncorrectCredentialsException("Email o contraseña incorrectos.");
+            case SERVER_ERROR:
+                throw new ServerErrorException("Ha ocurrido un error en el servidor.");
+            case CONNECTION_ERROR:
+                throw new ConnectionException("Error en la conexión con la base de datos.");
+            case MAX_THREAD_USER:
+                throw new MaxThreadUserException("Máximo de usuarios alcanzado. Intente más tarde.");
+            default:
+                throw new Exception("Respuesta desconocida del servidor.");
+        }
+    }
+
+    /**
+     * Envía un mensaje al servidor y espera su respuesta.
+     *
+     * <p>
+     * Con peticiones en paralelo espera la respuesta de la
+     * {@link PipelinedConnection}. En modo persistente usa un socket del
+     * {@link ClientConnectionPool}; si no, abre un socket, hace el intercambio
+     * y lo cierra.
+     * </p>
+     *
+     * @param request El mensaje a enviar.
+     * @return El mensaje de respuesta del servidor.
+     * @throws IOException Si no se puede comunicar con el servidor.
+     * @throws ClassNotFoundException Si la respuesta no es un objeto conocido.
+     */
+    private Message exchange(Message request) throws IOException, ClassNotFoundException {
+        if (pipelinedConnection != null) {
+            CompletableFuture<Message> response = pipelinedConnection.send(request);
+            try {
+                return response.get(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                response.cancel(false);
+                throw new SocketTimeoutException("El servidor no ha respondido en " + RESPONSE_TIMEOUT_MS + " ms.");
+            } catch (InterruptedException e) {
+                response.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando la respuesta del servidor.");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+        if (connectionPool != null) {
+            return connectionPool.exchange(request);
+        }
+        try (Socket socketCliente = new Socket(HOST, PUERTO)) {
+            if (BINARY) {
+                MessageCodec.write(socketCliente.getOutputStream(), request);
+                return MessageCodec.read(new BufferedInputStream(socketCliente.getInputStream()));
+            }
+            ObjectOutputStream oos = new ObjectOutputStream(socketCliente.getOutputStream());
+            oos.writeObject(request);
+            oos.flush();
+
+            ObjectInputStream ois = new ObjectInputStream(socketCliente.getInputStream());
+            return (Message) ois.readObject();
+        }
+    }
+
+    /**
+     * Hace un intercambio sin bloquear e interpreta la respuesta. Con
+     * peticiones en paralelo la respuesta se interpreta en el hilo lector de la
+     * {@link PipelinedConnection}; si no, el intercambio completo se hace en
+     * los hilos asíncronos.
+     *
+     * @param request El mensaje a enviar.
+     * @param handler Convierte la respuesta en el resultado o en una excepción.
+     * @param ioError Mensaje de la {@link ServerErrorException} si falla la
+     * comunicación.
+     * @return Un futuro con el resultado, que falla directamente con la
+     * excepción de la respuesta.
+     */
+    private <T> CompletableFuture<T> exchangeAsync(Message request, ResponseHandler<T> handler, String ioError) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (pipelinedConnection != null) {
+            pipelinedConnection.send(request, RESPONSE_TIMEOUT_MS).whenComplete((response, error) -> {
+                if (error != null) {
+                    LOGGER.log(Level.SEVERE, "Error en el intercambio asíncrono", error);
+                    result.completeExceptionally(new ServerErrorException(ioError));
+                    return;
+                }
+                try {
+                    result.complete(handler.handle(response));
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+            return result;
+        }
+        try {
+            getAsyncExecutor().execute(() -> {
+                try {
+                    result.complete(handler.handle(exchange(request)));
+                } catch (ClassNotFoundException | IOException ex) {
+                    LOGGER.log(Level.SEVERE, "Error en el intercambio asíncrono", ex);
+                    result.completeExceptionally(new ServerErrorException(ioError));
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(new ServerErrorException(ioError));
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve los hilos de los intercambios asíncronos, creándolos si es
+     * necesario. Son hilos daemon para no impedir que la aplicación termine.
+     *
+     * @return El ejecutor asíncrono.
+     */
+    private ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger(1);
+                    executor = Executors.newFixedThreadPool(ASYNC_THREADS, r -> {
+                        Thread thread = new Thread(r, "signer-async-" + threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    asyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Convierte un mensaje de respuesta en el resultado o en una excepción.
+     */
+    private interface ResponseHandler<T> {
+        T handle(Message response) throws Exception;
+    }
+}
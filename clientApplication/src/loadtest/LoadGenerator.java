@@ -0,0 +1,373 @@
+package loadtest;
+
+import Model.Message;
+import Model.PipelinedConnection;
+import Model.SignUpStatus;
+import Model.TipoMensaje;
+import Model.User;
+import Utils.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Genera carga de inicios de sesión y registros contra el servidor a un ritmo
+ * fijo.
+ *
+ * <p>Uso:</p>
+ * <pre>
+ * java loadtest.LoadGenerator [--rate peticiones/s] [--duration s] [--users n]
+ *     [--connections n] [--signup-ratio 0..1] [--seed n] [--host ip] [--port n]
+ *     [--format binary|java] [--report-interval s]
+ * </pre>
+ *
+ * <p>Antes de empezar registra <code>--seed</code> usuarios con registros por
+ * lotes. Después lanza una petición cada <code>1/rate</code> segundos durante
+ * <code>--duration</code> segundos: un registro de un email nuevo con
+ * probabilidad <code>--signup-ratio</code> y, si no, el inicio de sesión de
+ * uno de los usuarios registrados. Las peticiones se reparten entre
+ * <code>--connections</code> {@link PipelinedConnection}, así que miles de
+ * usuarios virtuales pueden tener una petición en curso sin un hilo por cada
+ * uno; <code>--users</code> es el número máximo de peticiones en curso.</p>
+ *
+ * <p>La latencia de cada petición se mide desde el momento en que tenía que
+ * salir según el ritmo, no desde que salió: si el servidor se atasca y no
+ * quedan usuarios libres, las peticiones que se retrasan cuentan el tiempo de
+ * espera. Así se corrige la omisión coordinada, que haría parecer rápido a un
+ * servidor que se para de vez en cuando. También se guarda el tiempo de
+ * servicio, desde el envío, para compararlos.</p>
+ *
+ * <p>Al terminar muestra el rendimiento, las respuestas de cada tipo de
+ * petición por {@link TipoMensaje}, los fallos de comunicación por excepción y
+ * los percentiles de las dos latencias.</p>
+ *
+ * @author Alder
+ */
+public class LoadGenerator {
+
+    /**
+     * Logger para registrar eventos y mensajes.
+     */
+    private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class.getName());
+
+    /**
+     * Archivo de configuración que contiene información del socket.
+     */
+    private static final ResourceBundle archivo = ResourceBundle.getBundle("Utils.socketConfig");
+
+    /**
+     * Contraseña de todos los usuarios de prueba.
+     */
+    private static final String PASSWORD = "abcd*1234";
+
+    /**
+     * Segundos que se espera a las respuestas pendientes al terminar.
+     */
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final PipelinedConnection[] connections;
+    private final double rate;
+    private final long durationNanos;
+    private final int users;
+    private final double signUpRatio;
+    private final int seeded;
+    private final String prefix = "load-" + System.currentTimeMillis() + "-";
+
+    private final Semaphore inFlight;
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram service = new LatencyHistogram();
+    private final Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong newEmails = new AtomicLong();
+
+    LoadGenerator(String host, int port, boolean binary, int connectionCount, double rate, long durationSeconds,
+            int users, double signUpRatio, int seeded) {
+        this.connections = new PipelinedConnection[Math.max(1, connectionCount)];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = new PipelinedConnection(host, port, binary);
+        }
+        this.rate = rate;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.users = Math.max(1, users);
+        this.signUpRatio = signUpRatio;
+        this.seeded = seeded;
+        this.inFlight = new Semaphore(this.users);
+    }
+
+    /**
+     * Punto de entrada de la herramienta.
+     *
+     * @param args Las opciones.
+     */
+    public static void main(String[] args) {
+        String host = archivo.getString("IP");
+        int port = Integer.parseInt(archivo.getString("PORT"));
+        boolean binary = "binary".equalsIgnoreCase(archivo.getString("WIRE_FORMAT"));
+        double rate = 1000;
+        long duration = 30;
+        int users = 1000;
+        int connectionCount = 4;
+        double signUpRatio = 0.1;
+        int seeded = 1000;
+        long reportInterval = 5;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Falta el valor de " + args[i]);
+                System.exit(2);
+            }
+            switch (args[i]) {
+                case "--rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--duration":
+                    duration = Long.parseLong(args[i + 1]);
+                    break;
+                case "--users":
+                    users = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--connections":
+                    connectionCount = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--signup-ratio":
+                    signUpRatio = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--seed":
+                    seeded = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--host":
+                    host = args[i + 1];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--format":
+                    binary = "binary".equalsIgnoreCase(args[i + 1]);
+                    break;
+                case "--report-interval":
+                    reportInterval = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Opción desconocida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (rate <= 0 || duration <= 0) {
+            System.err.println("--rate y --duration tienen que ser mayores que 0");
+            System.exit(2);
+        }
+        if (seeded <= 0) {
+            // Sin usuarios registrados solo se pueden hacer registros
+            signUpRatio = 1;
+        }
+        LoadGenerator generator = new LoadGenerator(host, port, binary, connectionCount, rate, duration, users,
+                signUpRatio, Math.max(0, seeded));
+        int exitCode = 0;
+        try {
+            generator.seed();
+            generator.run(reportInterval);
+        } catch (InterruptedException e) {
+            LOGGER.warning("Prueba de carga interrumpida");
+            exitCode = 1;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "No se pudieron registrar los usuarios de prueba", e);
+            exitCode = 1;
+        } finally {
+            generator.close();
+        }
+        generator.report();
+        System.exit(exitCode);
+    }
+
+    /**
+     * Registra los usuarios cuyas sesiones se iniciarán durante la prueba.
+     * Los lotes se envían a la vez por todas las conexiones y cada uno espera
+     * su respuesta como mucho <code>CLIENT_RESPONSE_TIMEOUT_MS</code>.
+     */
+    void seed() {
+        if (seeded == 0) {
+            return;
+        }
+        int batchSize = Math.max(1, Integer.parseInt(archivo.getString("CLIENT_BATCH_SIZE")));
+        long timeoutMs = Long.parseLong(archivo.getString("CLIENT_RESPONSE_TIMEOUT_MS"));
+        List<CompletableFuture<Message>> batches = new ArrayList<>();
+        for (int start = 0; start < seeded; start += batchSize) {
+            List<User> batch = new ArrayList<>();
+            for (int i = start; i < Math.min(seeded, start + batchSize); i++) {
+                batch.add(user(seededEmail(i)));
+            }
+            Message msg = new Message();
+            msg.setUsers(batch);
+            msg.setTipo(TipoMensaje.SIGN_UP_BATCH_REQUEST);
+            batches.add(connections[batches.size() % connections.length].send(msg, timeoutMs));
+        }
+        long created = 0;
+        long existing = 0;
+        for (CompletableFuture<Message> batch : batches) {
+            Message response = batch.join();
+            if (response.getTipo() != TipoMensaje.OK_RESPONSE || response.getResults() == null) {
+                throw new IllegalStateException("Respuesta inesperada al registro por lotes: " + response.getTipo());
+            }
+            for (SignUpStatus status : response.getResults()) {
+                if (status == SignUpStatus.CREATED) {
+                    created++;
+                } else if (status == SignUpStatus.EMAIL_EXISTS) {
+                    existing++;
+                } else {
+                    throw new IllegalStateException("El servidor no pudo registrar un usuario de prueba");
+                }
+            }
+        }
+        LOGGER.info(String.format("Usuarios de prueba registrados: %d nuevos, %d existentes", created, existing));
+    }
+
+    /**
+     * Lanza las peticiones al ritmo pedido y espera a sus respuestas.
+     *
+     * @param reportIntervalSeconds Segundos entre dos informes de progreso; 0
+     * para no informar.
+     */
+    void run(long reportIntervalSeconds) throws InterruptedException {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reportIntervalSeconds > 0) {
+            AtomicLong last = new AtomicLong();
+            reporter.scheduleAtFixedRate(() -> {
+                long done = completed.get();
+                LOGGER.info(String.format(Locale.ROOT, "Enviadas %d, completadas %d (%.0f/s), en curso %d, p99 %.2f ms",
+                        sent.get(), done, (double) (done - last.getAndSet(done)) / reportIntervalSeconds,
+                        users - inFlight.availablePermits(), corrected.getValueAtPercentile(99) / 1000.0));
+            }, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+        }
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        try {
+            for (long i = 0;; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended - start >= durationNanos) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                // Si no quedan usuarios libres, el retraso cuenta en la latencia
+                inFlight.acquire();
+                send(connections[(int) (i % connections.length)], intended);
+            }
+            if (!inFlight.tryAcquire(users, DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warning(String.format("%d peticiones sin respuesta tras %d segundos",
+                        users - inFlight.availablePermits(), DRAIN_TIMEOUT_SECONDS));
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    /**
+     * Envía una petición y, al recibir la respuesta, registra sus latencias.
+     *
+     * @param intended El momento en que la petición tenía que salir.
+     */
+    private void send(PipelinedConnection connection, long intended) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Message msg = new Message();
+        if (random.nextDouble() < signUpRatio) {
+            msg.setTipo(TipoMensaje.SIGN_UP_REQUEST);
+            msg.setUser(user(prefix + "new-" + newEmails.incrementAndGet() + "@example.com"));
+        } else {
+            User user = new User();
+            user.setEmail(seededEmail(random.nextInt(seeded)));
+            user.setPassword(PASSWORD);
+            msg.setTipo(TipoMensaje.SIGN_IN_REQUEST);
+            msg.setUser(user);
+        }
+        String request = msg.getTipo().name();
+        sent.incrementAndGet();
+        long sentAt = System.nanoTime();
+        connection.send(msg).whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            corrected.record(TimeUnit.NANOSECONDS.toMicros(done - intended));
+            service.record(TimeUnit.NANOSECONDS.toMicros(done - sentAt));
+            if (error != null) {
+                count(failures, request + " " + error.getClass().getSimpleName());
+                count(responses, request + " -> " + TipoMensaje.CONNECTION_ERROR);
+            } else {
+                count(responses, request + " -> " + response.getTipo());
+            }
+            completed.incrementAndGet();
+            inFlight.release();
+        });
+    }
+
+    /**
+     * Muestra el resultado de la prueba.
+     */
+    void report() {
+        long count = corrected.getTotalCount();
+        System.out.printf(Locale.ROOT, "%nPeticiones: %d enviadas, %d completadas, ritmo pedido %.0f/s, "
+                + "obtenido %.1f/s%n", sent.get(), count, rate, count / (durationNanos / 1e9));
+        System.out.println("Respuestas:");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(responses).entrySet()) {
+            System.out.printf("  %-55s %10d%n", entry.getKey(), entry.getValue().sum());
+        }
+        if (!failures.isEmpty()) {
+            System.out.println("Fallos de comunicación:");
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(failures).entrySet()) {
+                System.out.printf("  %-55s %10d%n", entry.getKey(), entry.getValue().sum());
+            }
+        }
+        System.out.printf("%-10s %16s %16s%n", "Latencia", "corregida (ms)", "servicio (ms)");
+        for (double percentile : PERCENTILES) {
+            System.out.printf(Locale.ROOT, "%-10s %16.3f %16.3f%n", "p" + percentile,
+                    corrected.getValueAtPercentile(percentile) / 1000.0,
+                    service.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf(Locale.ROOT, "%-10s %16.3f %16.3f%n", "max", corrected.getMax() / 1000.0,
+                service.getMax() / 1000.0);
+        System.out.printf(Locale.ROOT, "%-10s %16.3f %16.3f%n", "media", corrected.getMean() / 1000.0,
+                service.getMean() / 1000.0);
+    }
+
+    /**
+     * Cierra las conexiones con el servidor.
+     */
+    void close() {
+        for (PipelinedConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private String seededEmail(int index) {
+        return prefix + index + "@example.com";
+    }
+
+    private static User user(String email) {
+        return new User(email, PASSWORD, "Carga", true, 1, "Calle Mayor", "Bilbao", 48001);
+    }
+
+    private static void count(Map<String, LongAdder> counters, String key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Paquete con la herramienta de pruebas de carga del servidor de
+ * autenticación.
+ */
+package loadtest;
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 import javafx.application.Platform;
 import javafx.scene.Parent;
 import javafx.scene.control.ContextMenu;
@@ -281,6 +282,9 @@ private void saveThemePreference(String theme) {
      * aplicación. En caso de que las credenciales sean incorrectas o se
      * produzca algún error, muestra un mensaje de alerta correspondiente.
      *
+     * La petición al servidor es asíncrona para no bloquear el hilo de
+     * JavaFX; el botón queda desactivado hasta recibir la respuesta.
+     *
      * @throws InvalidEmailFormatException si el formato del email es inválido.
      */
     @FXML
@@ -293,9 +297,23 @@ private void saveThemePreference(String theme) {
         user.setEmail(email);
         user.setPassword(password);
 
-        try {
-            User loggedInUser = SignableFactory.getSignable().signIn(user);
+        logInButton.setDisable(true);
+        SignableFactory.getSignable().signInAsync(user).whenComplete((loggedInUser, error)
+                -> Platform.runLater(() -> handleLogInResult(loggedInUser, error)));
+    }
 
+    /**
+     * Muestra el resultado del inicio de sesión en el hilo de JavaFX.
+     *
+     * @param loggedInUser el usuario que ha iniciado sesión, o null si ha fallado.
+     * @param error la excepción del inicio de sesión, o null si no ha fallado.
+     */
+    private void handleLogInResult(User loggedInUser, Throwable error) {
+        logInButton.setDisable(false);
+        try {
+            if (error != null) {
+                throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            }
             if (loggedInUser != null) {
                 navigateToScreen("/view/Main.fxml", "Main", true, loggedInUser);
             }
@@ -311,7 +329,7 @@ private void saveThemePreference(String theme) {
         } catch (MaxThreadUserException e) {
             utils.showAlert("Error", "No se pudo iniciar sesión. Máximo número de usuarios alcanzado. Espere unos minutos.");
             logger.warning("Máximo usuario alcanzado");
-        } catch (Exception e) {
+        } catch (Throwable e) {
             utils.showAlert("Error", "Ocurrió un error inesperado.");
             logger.severe("Error inesperado");
         }
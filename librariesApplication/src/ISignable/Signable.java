@@ -1,8 +1,12 @@
 package ISignable;
 
+import Model.SignUpStatus;
 import Model.User;
 import exception.ServerErrorException;
 import exception.UserAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interfaz que define las operaciones de registro e inicio de sesión para los usuarios.
@@ -30,4 +34,77 @@ public interface Signable {
      */
     public User signIn(User user) throws Exception;
 
+    /**
+     * Versión asíncrona de {@link #signUp(User)}.
+     *
+     * <p>El futuro se completa con el usuario registrado o falla con la misma
+     * excepción que lanzaría el método bloqueante (por ejemplo
+     * {@link UserAlreadyExistsException} o {@link ServerErrorException}). La
+     * implementación por defecto ejecuta el método bloqueante en el pool común;
+     * las implementaciones pueden sobrescribirla para no ocupar un hilo por
+     * petición.</p>
+     *
+     * @param user El usuario que se desea registrar.
+     * @return Un futuro con el usuario registrado.
+     */
+    public default CompletableFuture<User> signUpAsync(User user) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> {
+            try {
+                result.complete(signUp(user));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Versión asíncrona de {@link #signIn(User)}.
+     *
+     * <p>El futuro se completa con el usuario que ha iniciado sesión o falla
+     * con la misma excepción que lanzaría el método bloqueante. La
+     * implementación por defecto ejecuta el método bloqueante en el pool
+     * común.</p>
+     *
+     * @param user El usuario que desea iniciar sesión.
+     * @return Un futuro con el usuario que ha iniciado sesión.
+     */
+    public default CompletableFuture<User> signInAsync(User user) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> {
+            try {
+                result.complete(signIn(user));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Registra una lista de usuarios y devuelve el resultado de cada uno.
+     *
+     * <p>Un usuario que no se puede registrar no impide registrar a los demás.
+     * La implementación por defecto llama a {@link #signUp(User)} por cada
+     * usuario; las implementaciones pueden sobrescribirla para registrar
+     * varios usuarios en cada transacción.</p>
+     *
+     * @param users Los usuarios que se desean registrar.
+     * @return El resultado de cada usuario, en el mismo orden que la lista.
+     * @throws Exception Si ocurre un error que impide procesar la lista.
+     */
+    public default List<SignUpStatus> signUpBatch(List<User> users) throws Exception {
+        List<SignUpStatus> results = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                results.add(signUp(user) != null ? SignUpStatus.CREATED : SignUpStatus.EMAIL_EXISTS);
+            } catch (UserAlreadyExistsException e) {
+                results.add(SignUpStatus.EMAIL_EXISTS);
+            } catch (Exception e) {
+                results.add(SignUpStatus.ERROR);
+            }
+        }
+        return results;
+    }
 }
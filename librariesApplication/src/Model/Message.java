@@ -1,19 +1,36 @@
 package Model;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Representa un mensaje en el sistema, que está asociado a un usuario y un tipo de mensaje.
  * 
  * <p>Esta clase contiene la información básica de un mensaje, incluyendo el usuario
  * que lo envía y el tipo de mensaje que representa.</p>
+ *
+ * <p>El identificador de correlación permite enviar varias peticiones por la
+ * misma conexión sin esperar cada respuesta: el servidor copia el
+ * identificador de la petición en su respuesta y puede responder en cualquier
+ * orden. Un identificador 0 indica una petición sin correlación, que se
+ * responde en orden.</p>
+ *
+ * <p>Un registro por lotes envía la lista de usuarios en lugar de un único
+ * usuario, y la respuesta lleva el resultado de cada uno en el mismo orden.</p>
  * 
  * @author Alder
  */
 public class Message implements Serializable {
+
+    // Valor calculado de la versión sin correlación ni lotes: los campos nuevos
+    // son opcionales y un cliente antiguo debe poder seguir leyendo la clase
+    private static final long serialVersionUID = -8417417950395008430L;
     
     private User user;      // Usuario que envía el mensaje
     private TipoMensaje tipo; // Tipo de mensaje (ej. texto, imagen, etc.)
+    private long correlationId; // Identificador de la petición, 0 si no tiene
+    private List<User> users; // Usuarios de un registro por lotes
+    private List<SignUpStatus> results; // Resultado de cada usuario del lote
 
     /**
      * Obtiene el usuario que envía el mensaje.
@@ -50,4 +67,58 @@ public class Message implements Serializable {
     public void setTipo(TipoMensaje tipo) {
         this.tipo = tipo;
     }
+
+    /**
+     * Obtiene el identificador de correlación de la petición.
+     *
+     * @return el identificador, o 0 si el mensaje no tiene.
+     */
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * Establece el identificador de correlación de la petición.
+     *
+     * @param correlationId el identificador, o 0 para ninguno.
+     */
+    public void setCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Obtiene los usuarios de un registro por lotes.
+     *
+     * @return la lista de usuarios, o null si el mensaje no es un lote.
+     */
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Establece los usuarios de un registro por lotes.
+     *
+     * @param users la lista de usuarios.
+     */
+    public void setUsers(List<User> users) {
+        this.users = users;
+    }
+
+    /**
+     * Obtiene el resultado de cada usuario de un registro por lotes.
+     *
+     * @return los resultados en el orden de los usuarios, o null si no hay.
+     */
+    public List<SignUpStatus> getResults() {
+        return results;
+    }
+
+    /**
+     * Establece el resultado de cada usuario de un registro por lotes.
+     *
+     * @param results los resultados en el orden de los usuarios.
+     */
+    public void setResults(List<SignUpStatus> results) {
+        this.results = results;
+    }
 }
@@ -0,0 +1,488 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificador binario de {@link Message} para la comunicación por socket.
+ *
+ * <p>Sustituye a la serialización de Java, que envía en cada petición los
+ * descriptores de clase y los nombres de los campos. Cada mensaje se envía como
+ * una trama con este formato:</p>
+ * <ul>
+ *     <li><b>Cabecera:</b> el byte {@link #MAGIC}, el byte {@link #VERSION} y la
+ *     longitud del cuerpo como varint.</li>
+ *     <li><b>Cuerpo:</b> un byte con el código del {@link TipoMensaje}, un byte
+ *     de indicadores ({@link #FLAG_USER}, {@link #FLAG_CORRELATION},
+ *     {@link #FLAG_USERS}, {@link #FLAG_RESULTS}) y, según los indicadores, el
+ *     identificador de correlación como varint, los campos del usuario, la
+ *     lista de usuarios de un lote (su número como varint y cada usuario) y
+ *     la lista de resultados del lote (su número como varint y un byte por
+ *     resultado). Los textos van en UTF-8 precedidos de su longitud como
+ *     varint (0 para null), el estado de actividad como un byte y los
+ *     números como varint zigzag.</li>
+ * </ul>
+ *
+ * <p>El primer byte de la serialización de Java es siempre <code>0xAC</code>,
+ * así que el servidor distingue ambos formatos con el primer byte de cada
+ * petición y responde en el mismo formato.</p>
+ *
+ * @author Alder
+ */
+public class MessageCodec {
+
+    /**
+     * Primer byte de cada trama binaria. Distinto del primer byte de la
+     * serialización de Java (<code>0xAC</code>).
+     */
+    public static final int MAGIC = 0xB1;
+
+    /**
+     * Versión del formato de la trama.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Tamaño máximo del cuerpo de una trama.
+     */
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+
+    /**
+     * Bytes del cuerpo que no son usuarios del lote en el peor caso: código,
+     * indicadores, identificador de correlación y número de usuarios.
+     */
+    public static final int MAX_BATCH_OVERHEAD_BYTES = 1 + 1 + 10 + 5;
+
+    /**
+     * Tipos de mensaje por código. El código es la posición en este array, así
+     * que solo se pueden añadir tipos al final.
+     */
+    private static final TipoMensaje[] OPCODES = {
+        TipoMensaje.SIGN_IN_REQUEST,
+        TipoMensaje.SIGN_UP_REQUEST,
+        TipoMensaje.EMAIL_EXISTS,
+        TipoMensaje.SERVER_ERROR,
+        TipoMensaje.MAX_THREAD_USER,
+        TipoMensaje.OK_RESPONSE,
+        TipoMensaje.INCORRECT_CREDENTIALS_RESPONSE,
+        TipoMensaje.CONNECTION_ERROR,
+        TipoMensaje.SIGN_UP_BATCH_REQUEST
+    };
+
+    /**
+     * Resultados de un lote por código, con la misma regla que {@link #OPCODES}.
+     */
+    private static final SignUpStatus[] STATUS_CODES = {
+        SignUpStatus.CREATED,
+        SignUpStatus.EMAIL_EXISTS,
+        SignUpStatus.ERROR
+    };
+
+    /**
+     * Indicador de que el cuerpo lleva un usuario.
+     */
+    private static final int FLAG_USER = 1;
+
+    /**
+     * Indicador de que el cuerpo lleva un identificador de correlación.
+     */
+    private static final int FLAG_CORRELATION = 2;
+
+    /**
+     * Indicador de que el cuerpo lleva la lista de usuarios de un lote.
+     */
+    private static final int FLAG_USERS = 4;
+
+    /**
+     * Indicador de que el cuerpo lleva los resultados de un lote.
+     */
+    private static final int FLAG_RESULTS = 8;
+
+    /**
+     * Código que se envía cuando el mensaje no tiene tipo.
+     */
+    private static final int NO_OPCODE = 0xFF;
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Codifica un mensaje como una trama completa.
+     *
+     * @param msg El mensaje a codificar.
+     * @return Los bytes de la trama.
+     * @throws IllegalArgumentException Si el cuerpo ocupa más de
+     * {@link #MAX_BODY_BYTES}, porque el receptor rechazaría la trama; un lote
+     * se divide antes con {@link #encodedSize(User)}.
+     */
+    public static byte[] encode(Message msg) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(96);
+        body.write(opcodeOf(msg.getTipo()));
+        User user = msg.getUser();
+        long correlationId = msg.getCorrelationId();
+        List<User> users = msg.getUsers();
+        List<SignUpStatus> results = msg.getResults();
+        body.write((user != null ? FLAG_USER : 0) | (correlationId != 0 ? FLAG_CORRELATION : 0)
+                | (users != null ? FLAG_USERS : 0) | (results != null ? FLAG_RESULTS : 0));
+        if (correlationId != 0) {
+            writeVarlong(body, correlationId);
+        }
+        if (user != null) {
+            writeUser(body, user);
+        }
+        if (users != null) {
+            writeVarint(body, users.size());
+            for (User each : users) {
+                writeUser(body, each);
+            }
+        }
+        if (results != null) {
+            writeVarint(body, results.size());
+            for (SignUpStatus status : results) {
+                body.write(statusCodeOf(status));
+            }
+        }
+        if (body.size() > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("El mensaje ocupa " + body.size() + " bytes y el máximo de una trama es "
+                    + MAX_BODY_BYTES + ".");
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(body.size() + 6);
+        frame.write(MAGIC);
+        frame.write(VERSION);
+        writeVarint(frame, body.size());
+        byte[] bodyBytes = body.toByteArray();
+        frame.write(bodyBytes, 0, bodyBytes.length);
+        return frame.toByteArray();
+    }
+
+    /**
+     * Calcula lo que ocupa un usuario en el cuerpo de una trama.
+     *
+     * @param user El usuario.
+     * @return El número de bytes.
+     */
+    public static int encodedSize(User user) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(96);
+        writeUser(body, user);
+        return body.size();
+    }
+
+    /**
+     * Escribe un mensaje como una trama en un flujo y lo vacía.
+     *
+     * @param output El flujo de salida, que no se cierra.
+     * @param msg El mensaje a enviar.
+     * @throws IOException Si falla la escritura.
+     */
+    public static void write(OutputStream output, Message msg) throws IOException {
+        output.write(encode(msg));
+        output.flush();
+    }
+
+    /**
+     * Lee una trama completa de un flujo.
+     *
+     * @param input El flujo de entrada; conviene que tenga buffer.
+     * @return El mensaje leído.
+     * @throws EOFException Si el flujo termina antes de empezar la trama.
+     * @throws IOException Si la trama no es válida o falla la lectura.
+     */
+    public static Message read(InputStream input) throws IOException {
+        int magic = input.read();
+        if (magic < 0) {
+            throw new EOFException();
+        }
+        if (magic != MAGIC) {
+            throw new StreamCorruptedException("Trama no válida");
+        }
+        int version = input.read();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Versión de trama no soportada: " + version);
+        }
+        int length = readVarint(input);
+        if (length < 0 || length > MAX_BODY_BYTES) {
+            throw new StreamCorruptedException("Longitud de trama no válida: " + length);
+        }
+        byte[] body = new byte[length];
+        new DataInputStream(input).readFully(body);
+        return decodeBody(body, 0, length);
+    }
+
+    /**
+     * Calcula la longitud de la trama que empieza al principio de un buffer.
+     * Lo usa el servidor no bloqueante para saber si ya ha recibido una trama
+     * completa.
+     *
+     * @param data Los bytes recibidos.
+     * @param length El número de bytes válidos.
+     * @return La longitud total de la trama, o -1 si todavía faltan bytes.
+     * @throws StreamCorruptedException Si la cabecera no es válida.
+     */
+    public static int frameLength(byte[] data, int length) throws StreamCorruptedException {
+        if (length < 2) {
+            return -1;
+        }
+        if ((data[0] & 0xFF) != MAGIC || (data[1] & 0xFF) != VERSION) {
+            throw new StreamCorruptedException("Trama no válida");
+        }
+        int bodyLength = 0;
+        int shift = 0;
+        int pos = 2;
+        while (true) {
+            if (pos >= length) {
+                return -1;
+            }
+            int b = data[pos++] & 0xFF;
+            bodyLength |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new StreamCorruptedException("Longitud de trama no válida");
+            }
+        }
+        if (bodyLength < 0 || bodyLength > MAX_BODY_BYTES) {
+            throw new StreamCorruptedException("Longitud de trama no válida: " + bodyLength);
+        }
+        return pos + bodyLength <= length ? pos + bodyLength : -1;
+    }
+
+    /**
+     * Decodifica una trama completa de un buffer.
+     *
+     * @param data Los bytes de la trama, desde su primer byte.
+     * @param frameLength La longitud devuelta por {@link #frameLength(byte[], int)}.
+     * @return El mensaje decodificado.
+     * @throws StreamCorruptedException Si la trama no es válida.
+     */
+    public static Message decode(byte[] data, int frameLength) throws StreamCorruptedException {
+        int pos = 2;
+        while ((data[pos++] & 0x80) != 0) {
+            // Salta la longitud, ya comprobada por frameLength
+        }
+        return decodeBody(data, pos, frameLength);
+    }
+
+    /**
+     * Decodifica el cuerpo de una trama.
+     */
+    private static Message decodeBody(byte[] data, int start, int end) throws StreamCorruptedException {
+        Reader reader = new Reader(data, start, end);
+        Message msg = new Message();
+        msg.setTipo(tipoOf(reader.readByte()));
+        int flags = reader.readByte();
+        if ((flags & FLAG_CORRELATION) != 0) {
+            msg.setCorrelationId(reader.readVarlong());
+        }
+        if ((flags & FLAG_USER) != 0) {
+            msg.setUser(readUser(reader));
+        }
+        if ((flags & FLAG_USERS) != 0) {
+            int count = reader.readCount();
+            List<User> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                users.add(readUser(reader));
+            }
+            msg.setUsers(users);
+        }
+        if ((flags & FLAG_RESULTS) != 0) {
+            int count = reader.readCount();
+            List<SignUpStatus> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int code = reader.readByte();
+                if (code >= STATUS_CODES.length) {
+                    throw new StreamCorruptedException("Resultado desconocido: " + code);
+                }
+                results.add(STATUS_CODES[code]);
+            }
+            msg.setResults(results);
+        }
+        return msg;
+    }
+
+    private static void writeUser(ByteArrayOutputStream body, User user) {
+        writeString(body, user.getEmail());
+        writeString(body, user.getPassword());
+        writeString(body, user.getName());
+        body.write(user.isActivo() ? 1 : 0);
+        writeVarint(body, zigzag(user.getCompanyID()));
+        writeString(body, user.getStreet());
+        writeString(body, user.getCity());
+        writeVarint(body, zigzag(user.getZip()));
+    }
+
+    private static User readUser(Reader reader) throws StreamCorruptedException {
+        User user = new User();
+        user.setEmail(reader.readString());
+        user.setPassword(reader.readString());
+        user.setName(reader.readString());
+        user.setActivo(reader.readByte() != 0);
+        user.setCompanyID(unzigzag(reader.readVarint()));
+        user.setStreet(reader.readString());
+        user.setCity(reader.readString());
+        user.setZip(unzigzag(reader.readVarint()));
+        return user;
+    }
+
+    private static int statusCodeOf(SignUpStatus status) {
+        for (int i = 0; i < STATUS_CODES.length; i++) {
+            if (STATUS_CODES[i] == status) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Resultado sin código: " + status);
+    }
+
+    private static int opcodeOf(TipoMensaje tipo) {
+        if (tipo == null) {
+            return NO_OPCODE;
+        }
+        for (int i = 0; i < OPCODES.length; i++) {
+            if (OPCODES[i] == tipo) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de mensaje sin código: " + tipo);
+    }
+
+    private static TipoMensaje tipoOf(int opcode) throws StreamCorruptedException {
+        if (opcode == NO_OPCODE) {
+            return null;
+        }
+        if (opcode < 0 || opcode >= OPCODES.length) {
+            throw new StreamCorruptedException("Código de mensaje desconocido: " + opcode);
+        }
+        return OPCODES[opcode];
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeVarlong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readVarint(InputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Varint demasiado largo");
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Lector secuencial del cuerpo de una trama.
+     */
+    private static class Reader {
+
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] data, int start, int end) {
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+        }
+
+        int readByte() throws StreamCorruptedException {
+            if (pos >= end) {
+                throw new StreamCorruptedException("Trama incompleta");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarint() throws StreamCorruptedException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Varint demasiado largo");
+        }
+
+        long readVarlong() throws StreamCorruptedException {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Varint demasiado largo");
+        }
+
+        /**
+         * Lee el número de elementos de una lista; cada elemento ocupa al
+         * menos un byte, así que no puede haber más que bytes quedan.
+         */
+        int readCount() throws StreamCorruptedException {
+            int count = readVarint();
+            if (count < 0 || count > end - pos) {
+                throw new StreamCorruptedException("Lista fuera de la trama");
+            }
+            return count;
+        }
+
+        String readString() throws StreamCorruptedException {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length < 0 || length > end - pos) {
+                throw new StreamCorruptedException("Texto fuera de la trama");
+            }
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package Model;
+
+/**
+ * Resultado del registro de cada usuario de un registro por lotes.
+ *
+ * <ul>
+ *     <li><b>CREATED:</b> El usuario se ha registrado.</li>
+ *     <li><b>EMAIL_EXISTS:</b> El email ya estaba registrado, o aparece antes en el mismo lote.</li>
+ *     <li><b>ERROR:</b> No se ha podido registrar por un error del servidor o de la base de datos.</li>
+ * </ul>
+ *
+ * @author Alder
+ */
+public enum SignUpStatus {
+
+    /**
+     * El usuario se ha registrado.
+     */
+    CREATED,
+
+    /**
+     * El email ya estaba registrado.
+     */
+    EMAIL_EXISTS,
+
+    /**
+     * No se ha podido registrar el usuario.
+     */
+    ERROR
+}
@@ -14,6 +14,7 @@ package Model;
  *     <li><b>MAX_THREAD_USER:</b> Indica que se ha alcanzado el número máximo de usuarios en hilo.</li>
  *     <li><b>OK_RESPONSE:</b> Indica una respuesta exitosa.</li>
  *     <li><b>INCORRECT_CREDENTIALS_RESPONSE:</b> Indica que las credenciales proporcionadas son incorrectas.</li>
+ *     <li><b>SIGN_UP_BATCH_REQUEST:</b> Indica que se está solicitando registrar una lista de usuarios.</li>
  * </ul>
  * 
  * @author Alder
@@ -58,5 +59,10 @@ public enum TipoMensaje {
     /**
      * Indica que ha ocurrido un error de conexión.
      */
-    CONNECTION_ERROR
+    CONNECTION_ERROR,
+
+    /**
+     * Solicitud de registro de una lista de usuarios.
+     */
+    SIGN_UP_BATCH_REQUEST
 }
@@ -0,0 +1,124 @@
+package Utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con la misma disposición de cubos que
+ * HdrHistogram: cada potencia de dos se divide en 128 cubos lineales, así que
+ * cualquier valor se guarda con un error relativo menor del 1% y el tamaño no
+ * depende del número de muestras.
+ *
+ * <p>Los valores son microsegundos, de 0 a una hora; los mayores se guardan
+ * como una hora. Se puede registrar desde varios hilos a la vez.</p>
+ *
+ * <p>Lo usan la prueba de carga del cliente y las métricas del servidor.</p>
+ *
+ * @author Alder
+ */
+public class LatencyHistogram {
+
+    /**
+     * Mayor valor que se distingue: una hora en microsegundos.
+     */
+    public static final long HIGHEST_TRACKABLE = 3_600_000_000L;
+
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Crea un histograma vacío.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(indexOf(HIGHEST_TRACKABLE) + 1);
+    }
+
+    /**
+     * Registra un valor.
+     *
+     * @param micros La latencia en microsegundos; los negativos cuentan como 0.
+     */
+    public void record(long micros) {
+        long value = Math.min(HIGHEST_TRACKABLE, Math.max(0, micros));
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Otro hilo ha cambiado el máximo; se vuelve a comparar
+        }
+    }
+
+    /**
+     * @return El número de valores registrados.
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return El mayor valor registrado.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return La media de los valores registrados, o 0 si no hay ninguno.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Calcula un percentil. Devuelve el mayor valor equivalente al cubo en el
+     * que cae, para no dar nunca una latencia menor que la real.
+     *
+     * @param percentile El percentil, de 0 a 100.
+     * @return El valor del percentil, o 0 si no hay valores.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(max.get(), highestEquivalentValue(i));
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Posición del cubo de un valor.
+     */
+    static int indexOf(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - (SUB_BUCKET_HALF_COUNT_MAGNITUDE + 1);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Mayor valor que cae en un cubo.
+     */
+    static long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        long subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return ((subBucketIndex + 1) << bucketIndex) - 1;
+    }
+}
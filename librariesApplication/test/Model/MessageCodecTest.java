@@ -0,0 +1,86 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class MessageCodecTest {
+
+    @Test
+    public void testRoundTripKeepsEveryField() throws Exception {
+        Message msg = new Message();
+        msg.setTipo(TipoMensaje.SIGN_UP_REQUEST);
+        msg.setUser(new User("ñandú@example.com", null, "Iñaki", true, -3, "Calle Mayor 1", "Bilbao", 48001));
+
+        byte[] frame = MessageCodec.encode(msg);
+        Message read = MessageCodec.read(new ByteArrayInputStream(frame));
+
+        assertEquals(TipoMensaje.SIGN_UP_REQUEST, read.getTipo());
+        User user = read.getUser();
+        assertEquals("ñandú@example.com", user.getEmail());
+        assertNull(user.getPassword());
+        assertEquals("Iñaki", user.getName());
+        assertTrue(user.isActivo());
+        assertEquals(-3, user.getCompanyID());
+        assertEquals("Calle Mayor 1", user.getStreet());
+        assertEquals("Bilbao", user.getCity());
+        assertEquals(48001, user.getZip());
+    }
+
+    @Test
+    public void testFrameLengthWaitsForCompleteFrame() throws Exception {
+        Message msg = new Message();
+        msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+        byte[] frame = MessageCodec.encode(msg);
+
+        assertEquals(-1, MessageCodec.frameLength(frame, frame.length - 1));
+        assertEquals(frame.length, MessageCodec.frameLength(frame, frame.length));
+
+        Message read = MessageCodec.decode(frame, frame.length);
+        assertEquals(TipoMensaje.MAX_THREAD_USER, read.getTipo());
+        assertNull(read.getUser());
+    }
+
+    @Test
+    public void testBatchRoundTripKeepsUsersResultsAndCorrelation() throws Exception {
+        Message msg = new Message();
+        msg.setTipo(TipoMensaje.SIGN_UP_BATCH_REQUEST);
+        msg.setCorrelationId(1L << 40);
+        msg.setUsers(Arrays.asList(
+                new User("a@example.com", "abcd*1234", "Ana", true, 1, "Calle 1", "Bilbao", 48001),
+                new User("b@example.com", "abcd*1234", "Beñat", false, 1, null, null, 0)));
+        msg.setResults(Arrays.asList(SignUpStatus.CREATED, SignUpStatus.EMAIL_EXISTS, SignUpStatus.ERROR));
+
+        byte[] frame = MessageCodec.encode(msg);
+        Message read = MessageCodec.decode(frame, MessageCodec.frameLength(frame, frame.length));
+
+        assertEquals(TipoMensaje.SIGN_UP_BATCH_REQUEST, read.getTipo());
+        assertEquals(1L << 40, read.getCorrelationId());
+        assertNull(read.getUser());
+        assertEquals(2, read.getUsers().size());
+        assertEquals("Beñat", read.getUsers().get(1).getName());
+        assertNull(read.getUsers().get(1).getStreet());
+        assertEquals(Arrays.asList(SignUpStatus.CREATED, SignUpStatus.EMAIL_EXISTS, SignUpStatus.ERROR), read.getResults());
+    }
+
+    @Test
+    public void testEncodeRejectsBodiesTheReceiverWouldDrop() {
+        User user = new User();
+        user.setEmail("a@example.com");
+        user.setStreet(new String(new char[MessageCodec.MAX_BODY_BYTES]).replace('\0', 'x'));
+        Message msg = new Message();
+        msg.setTipo(TipoMensaje.SIGN_UP_REQUEST);
+        msg.setUser(user);
+        assertTrue(MessageCodec.encodedSize(user) > MessageCodec.MAX_BODY_BYTES);
+        try {
+            MessageCodec.encode(msg);
+            fail("Una trama mayor que MAX_BODY_BYTES no debe codificarse");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(String.valueOf(MessageCodec.MAX_BODY_BYTES)));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package Model;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import metrics.MetricsRegistry;
+
+/**
+ * Hilo que acepta conexiones en un {@link ServerSocket} y las entrega al
+ * {@link WorkerPool}.
+ *
+ * <p>{@link Server} arranca <code>ACCEPTORS</code> aceptadores. Si el sistema
+ * ofrece <code>SO_REUSEPORT</code>, {@link #bind(int, int, int)} abre un socket
+ * por aceptador en el mismo puerto y el núcleo reparte las conexiones nuevas
+ * entre ellos, así que una avalancha de reconexiones no se atiende en una sola
+ * cola ni en un solo núcleo. Como el proyecto compila para Java 8, la opción se
+ * pone por reflexión; si la JVM o el sistema no la tienen, todos los
+ * aceptadores comparten un único socket.</p>
+ *
+ * <p>Cada aceptador publica en el {@link MetricsRegistry} las conexiones que
+ * ha aceptado, <code>server_accepted_total</code>, y los errores al aceptar,
+ * <code>server_accept_errors_total</code>, con la etiqueta
+ * <code>acceptor</code>.</p>
+ *
+ * @author Alder
+ */
+class Acceptor implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(Acceptor.class.getName());
+
+    /**
+     * Primera espera tras un error al aceptar.
+     */
+    private static final long ACCEPT_BACKOFF_MIN_MS = 10;
+
+    /**
+     * Espera máxima tras errores seguidos al aceptar.
+     */
+    private static final long ACCEPT_BACKOFF_MAX_MS = 1000;
+
+    /**
+     * Intervalo mínimo entre dos avisos de error al aceptar.
+     */
+    private static final long ERROR_LOG_INTERVAL_MS = 10_000;
+
+    private final int id;
+    private final ServerSocket serverSocket;
+    private final WorkerPool workerPool;
+    private final LongAdder accepted;
+    private final LongAdder errors;
+    private long lastErrorLog; // Instante del último aviso, en System.nanoTime()
+    private int suppressedErrors;
+
+    /**
+     * Crea un aceptador.
+     *
+     * @param id El número del aceptador, desde 1.
+     * @param serverSocket El socket en el que acepta.
+     * @param workerPool El pool que atiende a los clientes aceptados.
+     */
+    Acceptor(int id, ServerSocket serverSocket, WorkerPool workerPool) {
+        this.id = id;
+        this.serverSocket = serverSocket;
+        this.workerPool = workerPool;
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.accepted = metrics.counter("server_accepted_total", "acceptor", String.valueOf(id));
+        this.errors = metrics.counter("server_accept_errors_total", "acceptor", String.valueOf(id));
+    }
+
+    /**
+     * Abre los sockets de escucha de los aceptadores.
+     *
+     * @param port El puerto.
+     * @param acceptors El número de aceptadores.
+     * @param backlog Las conexiones que el sistema puede tener pendientes de
+     * aceptar en cada socket.
+     * @return Un socket por aceptador con <code>SO_REUSEPORT</code>, o uno
+     * solo que comparten todos.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    static List<ServerSocket> bind(int port, int acceptors, int backlog) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        SocketOption<Boolean> reusePort = acceptors > 1 ? reusePortOption() : null;
+        try {
+            ServerSocket first = new ServerSocket();
+            sockets.add(first);
+            boolean shared = reusePort == null || !enable(first, reusePort);
+            first.bind(new InetSocketAddress(port), backlog);
+            for (int i = 1; i < acceptors && !shared; i++) {
+                ServerSocket socket = new ServerSocket();
+                sockets.add(socket);
+                enable(socket, reusePort);
+                socket.bind(new InetSocketAddress(port), backlog);
+            }
+        } catch (IOException e) {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+            throw e;
+        }
+        if (acceptors > 1 && sockets.size() == 1) {
+            logger.info("SO_REUSEPORT no disponible, los aceptadores comparten un socket.");
+        }
+        return sockets;
+    }
+
+    /**
+     * Obtiene por reflexión <code>StandardSocketOptions.SO_REUSEPORT</code>,
+     * que existe desde Java 9.
+     *
+     * @return La opción, o null si la JVM no la tiene.
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Activa una opción con <code>ServerSocket.setOption</code>, que existe
+     * desde Java 9, si el sistema la soporta.
+     *
+     * @return true si se ha activado.
+     */
+    private static boolean enable(ServerSocket socket, SocketOption<Boolean> option) {
+        try {
+            Set<?> supported = (Set<?>) ServerSocket.class.getMethod("supportedOptions").invoke(socket);
+            if (!supported.contains(option)) {
+                return false;
+            }
+            ServerSocket.class.getMethod("setOption", SocketOption.class, Object.class).invoke(socket, option, true);
+            return true;
+        } catch (InvocationTargetException e) {
+            logger.log(Level.WARNING, "No se pudo activar " + option.name(), e.getCause());
+            return false;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Acepta conexiones hasta que se cierra el socket.
+     *
+     * <p>Tras un error al aceptar, por ejemplo al agotar los descriptores de
+     * fichero, el aceptador espera antes de volver a intentarlo, desde
+     * <code>ACCEPT_BACKOFF_MIN_MS</code> hasta
+     * <code>ACCEPT_BACKOFF_MAX_MS</code>, para no girar en vacío mientras el
+     * error persiste. La espera vuelve a cero con la siguiente conexión.</p>
+     */
+    @Override
+    public void run() {
+        long backoffMs = 0;
+        while (true) {
+            Socket clientSocket;
+            try {
+                clientSocket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    // Si el socket está cerrado, salir del bucle de forma controlada
+                    logger.log(Level.INFO, "Socket del servidor cerrado. Deteniendo el aceptador {0}.", id);
+                    return;
+                }
+                errors.increment();
+                logAcceptError(e);
+                backoffMs = Math.min(ACCEPT_BACKOFF_MAX_MS, Math.max(ACCEPT_BACKOFF_MIN_MS, backoffMs * 2));
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            backoffMs = 0;
+            accepted.increment();
+            logger.log(Level.FINE, "Nuevo cliente conectado en el aceptador {0}", id);
+
+            // Entrega la comunicación con el cliente al pool de hilos
+            workerPool.execute(new Worker(clientSocket));
+        }
+    }
+
+    /**
+     * Registra un error al aceptar como mucho una vez cada
+     * <code>ERROR_LOG_INTERVAL_MS</code>, con la traza completa, e indica
+     * cuántos errores se han omitido desde el último aviso.
+     *
+     * @param e El error.
+     */
+    private void logAcceptError(IOException e) {
+        long now = System.nanoTime();
+        if (lastErrorLog != 0 && now - lastErrorLog < TimeUnit.MILLISECONDS.toNanos(ERROR_LOG_INTERVAL_MS)) {
+            suppressedErrors++;
+            return;
+        }
+        lastErrorLog = now;
+        String message = "Error al aceptar una conexión en el aceptador " + id;
+        if (suppressedErrors > 0) {
+            message += " (" + suppressedErrors + " errores más sin registrar)";
+            suppressedErrors = 0;
+        }
+        logger.log(Level.WARNING, message, e);
+    }
+
+    /**
+     * @return Un resumen de las conexiones aceptadas y los errores.
+     */
+    String getStatistics() {
+        return String.format("Aceptador %d: %d conexiones aceptadas, %d errores", id, accepted.sum(), errors.sum());
+    }
+}
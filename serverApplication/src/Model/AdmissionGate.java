@@ -0,0 +1,161 @@
+package Model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Esta clase controla cuántos clientes pueden ser atendidos a la vez.
+ *
+ * <p>Sustituye al antiguo contador sincronizado <code>NumThread</code>. La
+ * comprobación del máximo y el incremento se hacen en una sola operación
+ * atómica (compare-and-set), así que nunca entran más clientes que el límite
+ * aunque lleguen muchos a la vez, y ningún hilo tiene que esperar a un
+ * monitor para pasar.</p>
+ *
+ * <p>Además del número actual de clientes, lleva la cuenta del máximo
+ * alcanzado y de las peticiones rechazadas.</p>
+ *
+ * @author Alder
+ */
+public class AdmissionGate {
+
+    /** Espera mínima entre reintentos de {@link #tryAcquire(long, TimeUnit)}. */
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** Espera máxima entre reintentos de {@link #tryAcquire(long, TimeUnit)}. */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final int maxPermits;
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Crea la puerta de admisión con un número máximo de clientes.
+     *
+     * @param maxPermits El número máximo de clientes atendidos a la vez.
+     */
+    public AdmissionGate(int maxPermits) {
+        if (maxPermits < 0) {
+            throw new IllegalArgumentException("maxPermits < 0");
+        }
+        this.maxPermits = maxPermits;
+    }
+
+    /**
+     * Intenta admitir un cliente sin esperar.
+     *
+     * @return true si el cliente ha sido admitido; false si se ha alcanzado el máximo.
+     */
+    public boolean tryAcquire() {
+        if (acquireOnce()) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Intenta admitir un cliente esperando como mucho el tiempo indicado a que
+     * quede un hueco libre.
+     *
+     * @param timeout El tiempo máximo de espera; 0 equivale a {@link #tryAcquire()}.
+     * @param unit La unidad del tiempo de espera.
+     * @return true si el cliente ha sido admitido; false si se agota la espera
+     * o el hilo es interrumpido.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) {
+        if (acquireOnce()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long park = MIN_PARK_NANOS;
+        while (!Thread.currentThread().isInterrupted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(Math.min(park, remaining));
+            if (acquireOnce()) {
+                return true;
+            }
+            park = Math.min(park * 2, MAX_PARK_NANOS);
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Libera el hueco de un cliente admitido.
+     */
+    public void release() {
+        int value = current.decrementAndGet();
+        if (value < 0) {
+            current.incrementAndGet();
+            throw new IllegalStateException("release() sin tryAcquire() previo");
+        }
+    }
+
+    /**
+     * Incrementa el contador solo si no se ha alcanzado el máximo.
+     */
+    private boolean acquireOnce() {
+        while (true) {
+            int value = current.get();
+            if (value >= maxPermits) {
+                return false;
+            }
+            if (current.compareAndSet(value, value + 1)) {
+                updatePeak(value + 1);
+                return true;
+            }
+        }
+    }
+
+    private void updatePeak(int value) {
+        int max;
+        while (value > (max = peak.get())) {
+            if (peak.compareAndSet(max, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Devuelve el número de clientes admitidos en este momento.
+     *
+     * @return El número actual de clientes.
+     */
+    public int getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Devuelve el mayor número de clientes admitidos a la vez.
+     *
+     * @return El máximo alcanzado.
+     */
+    public int getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * Devuelve el número de peticiones rechazadas por haber alcanzado el máximo.
+     *
+     * @return El número de rechazos.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Devuelve el número máximo de clientes admitidos a la vez.
+     *
+     * @return El límite configurado.
+     */
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+}
@@ -0,0 +1,642 @@
+package Model;
+
+import database.DBPool;
+import exception.ConnectionException;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import metrics.RequestMetrics;
+
+/**
+ * Esta clase representa un servidor alternativo a {@link Server} basado en
+ * canales no bloqueantes de Java NIO.
+ *
+ * <p>Un hilo acepta las conexiones con un {@link ServerSocketChannel} y las
+ * reparte entre un número pequeño de bucles de eventos, cada uno con su propio
+ * {@link Selector}. Los bucles leen los bytes de muchas conexiones a la vez y,
+ * cuando un {@link Message} está completo, lo entregan a un pool de hilos que
+ * ejecuta la lógica de inicio de sesión y registro de {@link Worker}. La
+ * respuesta vuelve al bucle de eventos, que la escribe sin bloquear.</p>
+ *
+ * <p>Las conexiones pueden ser persistentes: tras escribir una respuesta el
+ * canal vuelve a esperar la siguiente petición, y se cierra cuando el cliente
+ * lo cierra o cuando pasa <code>CONNECTION_IDLE_TIMEOUT_MS</code> sin actividad.
+ * Las peticiones con identificador de correlación de una misma conexión se
+ * procesan en paralelo, hasta <code>PIPELINE_MAX_IN_FLIGHT</code>, y se
+ * responden según terminan; las que no lo tienen se procesan de una en una.</p>
+ *
+ * <p>Cada petición es una trama de {@link MessageCodec}, completa cuando han
+ * llegado los bytes que indica su cabecera. Los clientes que envían
+ * serialización de Java reciben {@link TipoMensaje#SERVER_ERROR} en ese formato
+ * y se cierra la conexión: ese flujo no lleva su longitud y habría que
+ * deserializarlo de nuevo en cada lectura para saber si está completo. El
+ * servidor bloqueante {@link Server} sigue aceptando los dos formatos. El
+ * tamaño máximo de una petición está acotado para mantener la memoria
+ * estable.</p>
+ *
+ * @author Borja
+ */
+public class NioServer {
+
+    // Logger para registrar actividades del servidor
+    private static final Logger logger = Logger.getLogger(NioServer.class.getName());
+
+    // Carga de configuraciones
+    private static final ResourceBundle config = ResourceBundle.getBundle("Utils.socketConfig");
+    private static final int PORT = Integer.parseInt(config.getString("PORT"));
+    private static final int EVENT_LOOPS = Integer.parseInt(config.getString("NIO_EVENT_LOOPS"));
+    private static final int MAX_REQUEST_BYTES = Integer.parseInt(config.getString("NIO_MAX_REQUEST_BYTES"));
+    private static final int HANDLER_THREADS = Integer.parseInt(config.getString("POOL_MAX_SIZE"));
+    private static final int HANDLER_QUEUE_SIZE = Integer.parseInt(config.getString("POOL_QUEUE_SIZE"));
+    private static final int IDLE_TIMEOUT_MS = Integer.parseInt(config.getString("CONNECTION_IDLE_TIMEOUT_MS"));
+    private static final int PIPELINE_MAX_IN_FLIGHT = Integer.parseInt(config.getString("PIPELINE_MAX_IN_FLIGHT"));
+    private static final int READ_BUFFER_BYTES = 8192;
+    private static final int JAVA_STREAM_MAGIC = 0xAC; // Primer byte de un flujo de serialización de Java
+    private static final long SWEEP_INTERVAL_MS = 1000;
+    private static final long POOL_SHUTDOWN_SECONDS = 10;
+
+    // Variables de estado del servidor
+    private volatile boolean serverOn = true;
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private EventLoop[] eventLoops;
+    private ThreadPoolExecutor handlerPool;
+
+    /**
+     * Constructor que inicia el servidor con el puerto de la configuración.
+     */
+    public NioServer() {
+        this.startServer();
+    }
+
+    /**
+     * Inicia los bucles de eventos y acepta conexiones hasta que se detenga el servidor.
+     */
+    public void startServer() {
+        try {
+            // Abre el puerto antes de arrancar hilos, para no dejarlos vivos si falla
+            acceptSelector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(PORT));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+            AtomicInteger handlerNumber = new AtomicInteger(1);
+            handlerPool = new ThreadPoolExecutor(HANDLER_THREADS, HANDLER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(HANDLER_QUEUE_SIZE),
+                    r -> new Thread(r, "nio-handler-" + handlerNumber.getAndIncrement()));
+
+            eventLoops = new EventLoop[EVENT_LOOPS];
+            for (int i = 0; i < EVENT_LOOPS; i++) {
+                eventLoops[i] = new EventLoop();
+                new Thread(eventLoops[i], "nio-loop-" + (i + 1)).start();
+            }
+            logger.info("El servidor NIO está escuchando en el puerto " + PORT + " con " + EVENT_LOOPS + " bucles de eventos");
+
+            // Inicia un hilo dedicado para escuchar la entrada 'q' para cerrar el servidor
+            new Thread(this::keyboardListener).start();
+
+            int next = 0;
+            while (serverOn) {
+                acceptSelector.select();
+                Iterator<SelectionKey> keys = acceptSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        SocketChannel channel = serverChannel.accept();
+                        if (channel != null) {
+                            channel.configureBlocking(false);
+                            eventLoops[next].register(channel);
+                            next = (next + 1) % eventLoops.length;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (serverOn) {
+                logger.log(Level.SEVERE, "Excepción del servidor: " + e.getMessage(), e);
+                closeAcceptor();
+            }
+        }
+    }
+
+    /**
+     * Cierra el canal y el selector de aceptación si se llegaron a abrir.
+     */
+    private void closeAcceptor() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (acceptSelector != null) {
+                acceptSelector.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error stopping the server: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Método dedicado para escuchar la entrada 'q' para cerrar el servidor.
+     */
+    private void keyboardListener() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        logger.info("Presione 'q' para detener el servidor.");
+        try {
+            while (serverOn) {
+                String input = reader.readLine();
+                if (input != null && input.equalsIgnoreCase("q")) {
+                    stopServer();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error al leer la entrada", e);
+        }
+    }
+
+    /**
+     * Detiene la aceptación, los bucles de eventos y el pool de conexiones.
+     */
+    private void stopServer() {
+        serverOn = false;
+        closeAcceptor();
+        if (eventLoops != null) {
+            for (EventLoop loop : eventLoops) {
+                if (loop != null) {
+                    loop.stop();
+                }
+            }
+        }
+        if (handlerPool != null) {
+            handlerPool.shutdown();
+            try {
+                handlerPool.awaitTermination(POOL_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            DBPool.getInstance().releaseAllConnections();
+        } catch (ConnectionException ex) {
+            logger.log(Level.SEVERE, "Error al detener el servidor: " + ex.getMessage(), ex);
+        }
+        logger.info("El servidor ha sido detenido.");
+    }
+
+    /**
+     * Intenta leer una trama de {@link MessageCodec} completa del principio de
+     * los bytes recibidos y, si lo consigue, los descarta del buffer dejando
+     * los que le siguen. La cabecera de la trama dice su longitud, así que
+     * saber si está completa no cuesta más que leer la cabecera.
+     *
+     * <p>Un flujo de serialización de Java no dice su longitud y solo se sabe
+     * si está completo deserializándolo, lo que habría que repetir en cada
+     * lectura sobre bytes que envía el cliente. Por eso este servidor no lo
+     * acepta: lanza {@link JavaSerializationException} para que se responda
+     * con un error en ese formato y se cierre la conexión.</p>
+     *
+     * @param client La conexión con los bytes recibidos hasta ahora.
+     * @return El mensaje, o null si todavía faltan bytes.
+     * @throws IOException Si los bytes no forman una trama válida.
+     */
+    private static Message decode(ClientChannel client) throws IOException {
+        byte[] data = client.received;
+        int length = client.length;
+        if (length == 0) {
+            return null;
+        }
+        if ((data[0] & 0xFF) != MessageCodec.MAGIC) {
+            if ((data[0] & 0xFF) == JAVA_STREAM_MAGIC) {
+                throw new JavaSerializationException();
+            }
+            throw new IOException("La petición no es una trama binaria");
+        }
+        int consumed = MessageCodec.frameLength(data, length);
+        if (consumed < 0) {
+            return null;
+        }
+        Message msg = MessageCodec.decode(data, consumed);
+        client.consume(consumed);
+        return msg;
+    }
+
+    /**
+     * Petición enviada con serialización de Java, que el servidor NIO no acepta.
+     */
+    private static class JavaSerializationException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        JavaSerializationException() {
+            super("El servidor NIO solo acepta tramas binarias (WIRE_FORMAT=binary)");
+        }
+    }
+
+    /**
+     * Codifica un mensaje de respuesta en el formato que espera el cliente.
+     *
+     * @param msg El mensaje de respuesta.
+     * @param binary Si la petición llegó como trama binaria.
+     * @return Un buffer listo para escribir en el canal.
+     * @throws IOException Si el mensaje no se puede serializar.
+     */
+    private static ByteBuffer encode(Message msg, boolean binary) throws IOException {
+        if (binary) {
+            return ByteBuffer.wrap(MessageCodec.encode(msg));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Estado de una conexión de cliente dentro de un bucle de eventos.
+     *
+     * <p>Los bytes recibidos y la respuesta que se está escribiendo solo los usa
+     * el bucle de eventos; las respuestas terminadas, el número de peticiones en
+     * curso y el indicador de petición ordenada los actualiza también el pool de
+     * hilos.</p>
+     */
+    private static class ClientChannel {
+
+        private final SocketChannel channel;
+        private byte[] received;
+        private int length = 0;
+        private ByteBuffer response;
+        private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean ordered; // Hay en curso una petición sin correlación
+        private boolean closing; // Solo se escriben las respuestas pendientes y se descarta lo que llegue
+        private long lastActivity = System.currentTimeMillis();
+
+        ClientChannel(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Añade bytes leídos al buffer de peticiones.
+         *
+         * @return false si las peticiones pendientes superan el tamaño máximo.
+         */
+        boolean append(ByteBuffer buffer) {
+            int count = buffer.remaining();
+            if (length + count > MAX_REQUEST_BYTES) {
+                return false;
+            }
+            if (received == null) {
+                // El buffer solo existe mientras hay peticiones a medio recibir
+                received = new byte[Math.max(512, count)];
+            } else if (length + count > received.length) {
+                byte[] bigger = new byte[Math.min(MAX_REQUEST_BYTES, Math.max(received.length * 2, length + count))];
+                System.arraycopy(received, 0, bigger, 0, length);
+                received = bigger;
+            }
+            buffer.get(received, length, count);
+            length += count;
+            return true;
+        }
+
+        /**
+         * Descarta los bytes de una petición ya leída y conserva los siguientes.
+         */
+        void consume(int count) {
+            length -= count;
+            if (length == 0) {
+                received = null;
+            } else {
+                System.arraycopy(received, count, received, 0, length);
+            }
+        }
+
+        /**
+         * Indica si se pueden empezar más peticiones de esta conexión.
+         */
+        boolean canDispatch() {
+            return !closing && !ordered && inFlight.get() < PIPELINE_MAX_IN_FLIGHT;
+        }
+
+        boolean hasPendingWrites() {
+            return response != null || !responses.isEmpty();
+        }
+    }
+
+    /**
+     * Bucle de eventos que lee peticiones y escribe respuestas de muchas conexiones.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<ClientChannel> pendingResponses = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private volatile boolean running = true;
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * Entrega una conexión nueva a este bucle desde el hilo que acepta.
+         */
+        void register(SocketChannel channel) {
+            pendingChannels.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Avisa desde el pool de hilos de que una conexión tiene respuestas listas.
+         */
+        void respond(ClientChannel client) {
+            pendingResponses.add(client);
+            selector.wakeup();
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                long lastSweep = System.currentTimeMillis();
+                while (running) {
+                    selector.select(SWEEP_INTERVAL_MS);
+                    registerPending();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastSweep >= SWEEP_INTERVAL_MS) {
+                        closeIdle(now);
+                        lastSweep = now;
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error en el bucle de eventos", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Error al cerrar el selector", e);
+                }
+            }
+        }
+
+        /**
+         * Registra las conexiones nuevas y atiende las que tienen respuestas
+         * listas: como ha terminado alguna petición, también procesa las
+         * peticiones que ya estaban recibidas y esperaban hueco.
+         */
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, new ClientChannel(channel));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "No se pudo registrar la conexión", e);
+                }
+            }
+            ClientChannel client;
+            while ((client = pendingResponses.poll()) != null) {
+                SelectionKey key = client.channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    processReceived(key, client);
+                    if (key.isValid()) {
+                        updateInterest(key, client);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lee los bytes disponibles y entrega al pool los mensajes completos.
+         */
+        private void read(SelectionKey key) {
+            ClientChannel client = (ClientChannel) key.attachment();
+            try {
+                readBuffer.clear();
+                int count = client.channel.read(readBuffer);
+                if (count < 0) {
+                    close(key);
+                    return;
+                }
+                readBuffer.flip();
+                client.lastActivity = System.currentTimeMillis();
+                if (client.closing) {
+                    // Descarta el resto de una petición que no se va a procesar
+                    return;
+                }
+                if (!client.append(readBuffer)) {
+                    logger.warning("Petición demasiado grande, cerrando la conexión.");
+                    close(key);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error al leer la petición, cerrando la conexión", e);
+                close(key);
+                return;
+            }
+            processReceived(key, client);
+            if (key.isValid()) {
+                updateInterest(key, client);
+            }
+        }
+
+        /**
+         * Entrega al pool los mensajes completos ya recibidos mientras la
+         * conexión tenga hueco. Las peticiones sin correlación se procesan de
+         * una en una para responderlas en orden.
+         */
+        private void processReceived(SelectionKey key, ClientChannel client) {
+            try {
+                while (client.canDispatch()) {
+                    long start = System.nanoTime();
+                    Message msg = decode(client);
+                    if (msg == null) {
+                        break;
+                    }
+                    dispatch(client, msg, true, start, System.nanoTime() - start);
+                }
+            } catch (JavaSerializationException e) {
+                logger.warning(e.getMessage() + ", cerrando la conexión.");
+                rejectJavaClient(key, client);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Petición no válida, cerrando la conexión", e);
+                close(key);
+            }
+        }
+
+        /**
+         * Responde {@link TipoMensaje#SERVER_ERROR} con serialización de Java,
+         * sin procesar la petición. Después de escribirlo se cierra la escritura
+         * y se descartan los bytes que siga enviando el cliente hasta que cierre
+         * la conexión o pase <code>CONNECTION_IDLE_TIMEOUT_MS</code>; así el
+         * cliente puede terminar de enviar y leer la respuesta.
+         */
+        private void rejectJavaClient(SelectionKey key, ClientChannel client) {
+            Message error = new Message();
+            error.setTipo(TipoMensaje.SERVER_ERROR);
+            try {
+                client.responses.add(encode(error, false));
+                client.closing = true;
+                client.received = null;
+                client.length = 0;
+            } catch (IOException e) {
+                close(key);
+            }
+        }
+
+        /**
+         * Ejecuta la petición en el pool de hilos y devuelve la respuesta a este
+         * bucle. Los tiempos se registran en {@link RequestMetrics}; el total
+         * va desde que se empieza a decodificar hasta que la respuesta está
+         * codificada.
+         */
+        private void dispatch(ClientChannel client, Message msg, boolean binary, long start, long decodeNanos) throws IOException {
+            TipoMensaje request = msg.getTipo();
+            boolean uncorrelated = msg.getCorrelationId() == 0;
+            client.inFlight.incrementAndGet();
+            if (uncorrelated) {
+                client.ordered = true;
+            }
+            try {
+                handlerPool.execute(() -> {
+                    try {
+                        Message response = Worker.processAdmitted(msg);
+                        long encodeStart = System.nanoTime();
+                        client.responses.add(encode(response, binary));
+                        long end = System.nanoTime();
+                        RequestMetrics.recordExchange(request, response.getTipo(), end - start, decodeNanos, end - encodeStart);
+                    } catch (IOException e) {
+                        logger.log(Level.SEVERE, "Error al serializar la respuesta", e);
+                    } finally {
+                        finish(client, uncorrelated);
+                        respond(client);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.warning("Pool de hilos saturado, rechazando petición.");
+                msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+                long encodeStart = System.nanoTime();
+                client.responses.add(encode(msg, binary));
+                long end = System.nanoTime();
+                RequestMetrics.recordExchange(request, TipoMensaje.MAX_THREAD_USER, end - start, decodeNanos, end - encodeStart);
+                finish(client, uncorrelated);
+            }
+        }
+
+        private void finish(ClientChannel client, boolean uncorrelated) {
+            if (uncorrelated) {
+                client.ordered = false;
+            }
+            client.inFlight.decrementAndGet();
+        }
+
+        /**
+         * Escribe las respuestas pendientes hasta que no quede ninguna o el
+         * socket no admita más bytes.
+         */
+        private void write(SelectionKey key) {
+            ClientChannel client = (ClientChannel) key.attachment();
+            try {
+                while (true) {
+                    if (client.response == null) {
+                        client.response = client.responses.poll();
+                        if (client.response == null) {
+                            break;
+                        }
+                    }
+                    client.channel.write(client.response);
+                    if (client.response.hasRemaining()) {
+                        break;
+                    }
+                    client.response = null;
+                    client.lastActivity = System.currentTimeMillis();
+                }
+                if (client.closing && !client.hasPendingWrites()) {
+                    // Cierra la escritura y sigue leyendo hasta que el cliente cierre
+                    client.channel.shutdownOutput();
+                }
+                updateInterest(key, client);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error al escribir la respuesta", e);
+                close(key);
+            }
+        }
+
+        /**
+         * Lee más peticiones solo si la conexión tiene hueco y escribe solo si
+         * hay respuestas pendientes.
+         */
+        private void updateInterest(SelectionKey key, ClientChannel client) {
+            int ops = 0;
+            if (client.canDispatch() || client.closing) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (client.hasPendingWrites()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Cierra las conexiones sin peticiones en curso ni respuestas pendientes
+         * desde hace más de <code>CONNECTION_IDLE_TIMEOUT_MS</code>.
+         */
+        private void closeIdle(long now) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid() && key.attachment() instanceof ClientChannel) {
+                    ClientChannel client = (ClientChannel) key.attachment();
+                    if (client.inFlight.get() == 0 && !client.hasPendingWrites()
+                            && now - client.lastActivity > IDLE_TIMEOUT_MS) {
+                        close(key);
+                    }
+                }
+            }
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error al cerrar la conexión", e);
+            }
+        }
+    }
+}
@@ -4,8 +4,8 @@ import database.DBPool;
 import exception.ConnectionException;
 import java.io.*;
 import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,7 +16,14 @@ import java.util.logging.Logger;
  * cada cliente.
  *
  * <p>El servidor se ejecuta en un puerto específico configurado a través de un
- * archivo de recursos y permite múltiples conexiones simultáneas mediante hilos.</p>
+ * archivo de recursos y permite múltiples conexiones simultáneas mediante un
+ * {@link WorkerPool} de tamaño acotado.</p>
+ *
+ * <p>Las conexiones las aceptan <code>ACCEPTORS</code> hilos {@link Acceptor}.
+ * Donde el sistema lo permite, cada uno escucha en su propio socket del mismo
+ * puerto con <code>SO_REUSEPORT</code>, y cada socket admite
+ * <code>ACCEPT_BACKLOG</code> conexiones pendientes. Así una avalancha de
+ * reconexiones se reparte entre varios núcleos.</p>
  *
  * @author Borja
  */
@@ -28,10 +35,15 @@ public class Server {
     // Carga de configuraciones
     private static final ResourceBundle config = ResourceBundle.getBundle("Utils.socketConfig");
     private static final int PORT = Integer.parseInt(config.getString("PORT"));
+    private static final int ACCEPTORS = Math.max(1, Integer.parseInt(config.getString("ACCEPTORS")));
+    private static final int ACCEPT_BACKLOG = Integer.parseInt(config.getString("ACCEPT_BACKLOG"));
+    private static final long POOL_SHUTDOWN_SECONDS = 10;
 
     // Variables de estado del servidor
     private static boolean serverOn = true;
-    private ServerSocket serverSocket;
+    private List<ServerSocket> serverSockets = new ArrayList<>();
+    private final List<Acceptor> acceptors = new ArrayList<>();
+    private WorkerPool workerPool;
 
     /**
      * Constructor para inicializar el servidor con el puerto de la configuración.
@@ -49,33 +61,34 @@ public class Server {
      */
     public void startServer() {
         try {
-            serverSocket = new ServerSocket(PORT);
-            logger.info("El servidor está escuchando en el puerto " + PORT);
+            serverSockets = Acceptor.bind(PORT, ACCEPTORS, ACCEPT_BACKLOG);
+            logger.info("El servidor está escuchando en el puerto " + PORT + " con " + ACCEPTORS + " aceptadores y "
+                    + serverSockets.size() + " sockets");
 
-            // Inicia un hilo dedicado para escuchar la entrada 'q' para cerrar el servidor
-            new Thread(this::keyboardListener).start();
+            // Pool de hilos que atiende a los clientes aceptados
+            workerPool = new WorkerPool();
 
-            // Acepta clientes continuamente mientras el servidor esté activo
-            while (serverOn) {
-                logger.info("Esperando nuevas conexiones...");
-                try {
-                    // Acepta conexiones de clientes
-                    Socket clientSocket = serverSocket.accept();
-                    logger.info("Nuevo cliente conectado");
+            // Cada aceptador usa su socket o, si solo hay uno, lo comparten todos
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < ACCEPTORS; i++) {
+                Acceptor acceptor = new Acceptor(i + 1, serverSockets.get(i % serverSockets.size()), workerPool);
+                acceptors.add(acceptor);
+                Thread thread = new Thread(acceptor, "acceptor-" + (i + 1));
+                threads.add(thread);
+                thread.start();
+            }
 
-                    // Crea un nuevo hilo para manejar la comunicación con el cliente
-                    new Thread(new Worker(clientSocket)).start();
+            // Inicia un hilo dedicado para escuchar la entrada 'q' para cerrar el servidor
+            new Thread(this::keyboardListener).start();
 
-                } catch (SocketException e) {
-                    // Si el socket está cerrado, salir del bucle de forma controlada
-                    logger.warning("Socket del servidor cerrado. Deteniendo el bucle de aceptación.");
-                    break;
-                } catch (IOException e) {
-                    logger.log(Level.SEVERE, "Excepción de IO: " + e.getMessage(), e);
-                }
+            // Acepta clientes mientras el servidor esté activo
+            for (Thread thread : threads) {
+                thread.join();
             }
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Excepción del servidor: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -113,8 +126,14 @@ public class Server {
             DBPool.getInstance().releaseAllConnections();
             serverOn = false; // Set serverOn to false
             serverOn = false; // Establece serverOn a false
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close(); // Cierra el socket del servidor
+            for (ServerSocket serverSocket : serverSockets) {
+                serverSocket.close(); // Cierra los sockets del servidor
+            }
+            for (Acceptor acceptor : acceptors) {
+                logger.info(acceptor.getStatistics());
+            }
+            if (workerPool != null) {
+                workerPool.shutdown(POOL_SHUTDOWN_SECONDS); // Espera a los clientes en curso
             }
             logger.info("El servidor ha sido detenido.");
         } catch (IOException e) {
@@ -5,9 +5,21 @@ import database.*;
 import exception.*;
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import metrics.MetricsRegistry;
+import metrics.RequestMetrics;
 
 /**
  * Esta clase representa un trabajador que maneja la comunicación con un único
@@ -18,15 +30,56 @@ import java.util.logging.Logger;
  * adecuadas de vuelta al cliente. Se asegura de que el número máximo de usuarios
  * conectados no se exceda y realiza el seguimiento de las conexiones activas.</p>
  *
+ * <p>Cada petición registra en {@link RequestMetrics} su tiempo total desde
+ * que se aceptó la conexión, o desde su primer byte en una conexión
+ * persistente, y los de decodificación, acceso a datos y envío de la
+ * respuesta.</p>
+ *
  * @author Alder and Borja
  */
 public class Worker implements Runnable {
 
     private static final Logger logger = Logger.getLogger(Worker.class.getName());
     private Socket socket;
-    private static final NumThread clientCounter = new NumThread(); // Contador de clientes seguro para hilos
+    private boolean binary; // Formato de la última petición: binario o serialización de Java
     private static final ResourceBundle config = ResourceBundle.getBundle("Utils.socketConfig");
     private static final int MAX_USERS = Integer.parseInt(config.getString("MAX_USERS"));
+    private static final long ADMISSION_TIMEOUT_MS = Long.parseLong(config.getString("ADMISSION_TIMEOUT_MS"));
+    private static final AdmissionGate admissionGate = new AdmissionGate(MAX_USERS); // Control de clientes sin bloqueos
+    private static final int REJECT_TIMEOUT_MS = 1000; // Tiempo máximo para leer la petición de un cliente rechazado
+    private static final int REJECT_THREADS = 2; // Hilos que responden a los clientes rechazados
+    private static final int REJECT_QUEUE_SIZE = 100; // Rechazos que pueden esperar a un hilo; si no caben se cierra el socket
+    private static final int IDLE_TIMEOUT_MS = Integer.parseInt(config.getString("CONNECTION_IDLE_TIMEOUT_MS"));
+    private static final int IDLE_CHECK_MS = Math.min(IDLE_TIMEOUT_MS, 200); // Cada cuánto mira una conexión inactiva si hay clientes esperando
+    private static final int PIPELINE_MAX_IN_FLIGHT = Integer.parseInt(config.getString("PIPELINE_MAX_IN_FLIGHT")); // Peticiones con correlación en curso por conexión
+    private final long acceptedAt = System.nanoTime(); // Momento en que se aceptó la conexión
+    private long readStarted; // Momento en que llegó el primer byte de la última petición
+    private IntSupplier waitingConnections = () -> 0; // Conexiones que esperan un hilo del pool
+    private final ReentrantLock writeLock = new ReentrantLock(); // Ordena las respuestas sin fijar el hilo virtual a su portador
+
+    static {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("server_clients_active", admissionGate::getCurrent);
+        metrics.gauge("server_clients_max", admissionGate::getMaxPermits);
+        metrics.counter("server_clients_rejected_total", admissionGate::getRejected);
+    }
+
+    /**
+     * Pool de hilos compartido que procesa las peticiones con identificador de
+     * correlación; se crea en el primer uso.
+     */
+    private static class PipelineExecutorHolder {
+        private static final ThreadPoolExecutor executor = newPipelineExecutor();
+    }
+
+    /**
+     * Pool de hilos pequeño que responde a los clientes rechazados, para que
+     * el hilo que acepta conexiones no espere a leer sus peticiones; se crea en
+     * el primer rechazo.
+     */
+    private static class RejectExecutorHolder {
+        private static final ThreadPoolExecutor executor = newRejectExecutor();
+    }
 
     /**
      * Constructor para inicializar el trabajador con el socket del cliente.
@@ -40,100 +93,462 @@ public class Worker implements Runnable {
     /**
      * Maneja la comunicación con el cliente, procesa los mensajes y envía respuestas.
      *
-     * <p>Este método lee los mensajes enviados por el cliente, determina el tipo de
-     * solicitud (inicio de sesión o registro) y ejecuta las acciones correspondientes
-     * utilizando la capa de acceso a datos. También maneja excepciones específicas
-     * relacionadas con las operaciones de usuario.</p>
+     * <p>La conexión puede ser persistente: este método lee peticiones en bucle,
+     * las procesa con {@link #processAdmitted(Message)} y envía cada respuesta,
+     * hasta que el cliente cierra la conexión o pasa
+     * <code>CONNECTION_IDLE_TIMEOUT_MS</code> sin enviar nada. Cada petición y
+     * cada respuesta es una trama de {@link MessageCodec} o un flujo de
+     * serialización completo, con su propia cabecera, así que un cliente que
+     * solo hace un intercambio y cierra sigue funcionando igual.</p>
+     *
+     * <p>Las peticiones con identificador de correlación se procesan en
+     * paralelo en un pool compartido y se responden en el orden en que
+     * terminan, con hasta <code>PIPELINE_MAX_IN_FLIGHT</code> en curso por
+     * conexión; al llegar al límite se deja de leer hasta que termine alguna.
+     * Las peticiones sin identificador se responden en orden. Antes de cerrar
+     * el socket se espera a que terminen las peticiones en curso.</p>
+     *
+     * <p>Mientras espera la siguiente petición, el hilo no queda retenido
+     * hasta <code>CONNECTION_IDLE_TIMEOUT_MS</code> si hacen falta hilos: si
+     * hay conexiones nuevas esperando en el {@link WorkerPool} y esta no tiene
+     * peticiones en curso, la cierra y deja el hilo libre. El cliente abre otra
+     * conexión para su siguiente petición.</p>
      */
     private void handleClient() {
-        ObjectInputStream objectReader = null;
-        ObjectOutputStream objectWriter = null;
-        Message msg = null;
-
+        int requests = 0;
+        Semaphore inFlight = new Semaphore(PIPELINE_MAX_IN_FLIGHT);
         try {
-            if (clientCounter.value() < MAX_USERS) {
-                clientCounter.increment();
-                logger.info("Número de hilos de cliente: " + clientCounter.value());
-                objectReader = new ObjectInputStream(socket.getInputStream());
-                msg = (Message) objectReader.readObject();
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = socket.getOutputStream();
 
-                // Registro del mensaje completo recibido para depuración
-                logger.info("Mensaje recibido: " + msg);
-
-                // Verifica si el objeto de usuario no es nulo
-                if (msg.getUser() != null) {
-                    String userEmail = msg.getUser().getEmail();
-                    switch (msg.getTipo()) {
-                        case SIGN_IN_REQUEST:
-                            logger.info("Iniciando sesión para el usuario: " + userEmail);
-                            User user = DaoFactory.getSignable().signIn(msg.getUser());
-                            msg.setUser(user);
-                            if (user == null) {
-                                msg.setTipo(TipoMensaje.INCORRECT_CREDENTIALS_RESPONSE);
-                            } else {
-                                msg.setTipo(TipoMensaje.OK_RESPONSE);
-                            }
-                            break;
-
-                        case SIGN_UP_REQUEST:
-                            logger.info("Registrando usuario: " + userEmail);
-                            user = DaoFactory.getSignable().signUp(msg.getUser());
-                            msg.setUser(user);
-                            if (user == null) {
-                                msg.setTipo(TipoMensaje.EMAIL_EXISTS);
-                            } else {
-                                msg.setTipo(TipoMensaje.OK_RESPONSE);
-                            }
-                            break;
-
-                        default:
-                            logger.warning("Tipo de mensaje desconocido: " + msg.getTipo());
-                            msg.setTipo(TipoMensaje.SERVER_ERROR);
-                            break;
+            while (true) {
+                Message msg;
+                try {
+                    if (!awaitRequest(input, inFlight)) {
+                        break;
                     }
+                    // Una petición empezada tiene todo el plazo para llegar completa
+                    socket.setSoTimeout(IDLE_TIMEOUT_MS);
+                    msg = readMessage(input);
+                } catch (EOFException e) {
+                    // El cliente ha cerrado la conexión
+                    break;
+                } catch (SocketTimeoutException e) {
+                    logger.info("Conexión inactiva, cerrando.");
+                    break;
+                }
+
+                long decodeNanos = System.nanoTime() - readStarted;
+                // La primera petición cuenta también la espera en el pool de trabajadores
+                long start = requests == 0 ? acceptedAt : readStarted;
+
+                // Registro del mensaje completo recibido para depuración
+                logger.log(Level.INFO, "Mensaje recibido: {0}", msg);
+
+                if (msg.getCorrelationId() == 0) {
+                    respond(output, msg, binary, start, decodeNanos);
                 } else {
-                    msg.setTipo(TipoMensaje.MAX_THREAD_USER);
-                    logger.warning("Máximo de usuarios alcanzado.");
+                    dispatchPipelined(output, msg, binary, inFlight, start, decodeNanos);
+                }
+                requests++;
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            logger.log(Level.SEVERE, "Clase no encontrada", e);
+            Message error = new Message();
+            error.setTipo(TipoMensaje.SERVER_ERROR);
+            try {
+                writeMessage(socket.getOutputStream(), error, binary);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Error de entrada/salida", ex);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error de entrada/salida", e);
+        } finally {
+            awaitInFlight(inFlight);
+            try {
+                logger.info("Cerrando conexiones");
+                socket.close();
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Error al cerrar las conexiones", ex);
+            }
+            logger.log(Level.INFO, "Cliente desconectado tras {0} peticiones. Clientes atendidos ahora: {1}",
+                    new Object[]{requests, admissionGate.getCurrent()});
+        }
+    }
+
+    /**
+     * Espera a que llegue el primer byte de la siguiente petición, sin
+     * consumirlo.
+     *
+     * @param input El flujo de entrada del socket, con soporte de marcas.
+     * @param inFlight Los permisos de peticiones en curso de esta conexión.
+     * @return false si hay que cerrar la conexión porque lleva
+     * <code>CONNECTION_IDLE_TIMEOUT_MS</code> inactiva o porque otras
+     * conexiones necesitan el hilo.
+     * @throws EOFException Si el cliente ha cerrado la conexión.
+     * @throws IOException Si falla la lectura.
+     */
+    private boolean awaitRequest(InputStream input, Semaphore inFlight) throws IOException {
+        socket.setSoTimeout(IDLE_CHECK_MS);
+        long idleSince = System.nanoTime();
+        while (true) {
+            try {
+                input.mark(1);
+                if (input.read() < 0) {
+                    throw new EOFException();
+                }
+                input.reset();
+                return true;
+            } catch (SocketTimeoutException e) {
+                if (System.nanoTime() - idleSince >= TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS)) {
+                    logger.info("Conexión inactiva, cerrando.");
+                    return false;
+                }
+                if (waitingConnections.getAsInt() > 0 && inFlight.availablePermits() == PIPELINE_MAX_IN_FLIGHT) {
+                    logger.fine("Hay clientes esperando un hilo, cerrando una conexión inactiva.");
+                    return false;
                 }
-            } else {
-                logger.warning("Máximo de usuarios alcanzado, rechazando nueva conexión.");
             }
+        }
+    }
+
+    /**
+     * Indica de dónde sale el número de conexiones que esperan un hilo libre;
+     * lo llama {@link WorkerPool} al recibir el trabajador.
+     *
+     * @param waitingConnections El número de conexiones en la cola del pool.
+     */
+    void setWaitingConnections(IntSupplier waitingConnections) {
+        this.waitingConnections = waitingConnections;
+    }
 
+    /**
+     * Lee una petición en el formato que haya elegido el cliente.
+     *
+     * <p>Mira el primer byte sin consumirlo: si es {@link MessageCodec#MAGIC}
+     * la petición es una trama binaria y, si no, un flujo de serialización de
+     * Java. La respuesta se envía en el mismo formato.</p>
+     *
+     * @param input El flujo de entrada del socket, con soporte de marcas.
+     * @return El mensaje leído.
+     * @throws EOFException Si el cliente ha cerrado la conexión.
+     * @throws IOException Si falla la lectura.
+     * @throws ClassNotFoundException Si el objeto recibido no es conocido.
+     */
+    private Message readMessage(InputStream input) throws IOException, ClassNotFoundException {
+        input.mark(1);
+        int first = input.read();
+        if (first < 0) {
+            throw new EOFException();
+        }
+        readStarted = System.nanoTime();
+        input.reset();
+        binary = first == MessageCodec.MAGIC;
+        if (binary) {
+            return MessageCodec.read(input);
+        }
+        return (Message) new ObjectInputStream(input).readObject();
+    }
+
+    /**
+     * Escribe un mensaje completo. Las escrituras de la conexión se ordenan con
+     * un {@link ReentrantLock} porque las respuestas con correlación las envían
+     * varios hilos; un monitor fijaría el hilo virtual a su portador mientras
+     * la escritura espera a un cliente lento.
+     *
+     * @param output El flujo de salida del socket, que no se cierra.
+     * @param msg El mensaje a enviar.
+     * @param binary Si se envía como trama de {@link MessageCodec}.
+     * @throws IOException Si falla la escritura.
+     */
+    private void writeMessage(OutputStream output, Message msg, boolean binary) throws IOException {
+        writeLock.lock();
+        try {
+            if (binary) {
+                MessageCodec.write(output, msg);
+                return;
+            }
+            ObjectOutputStream objectWriter = new ObjectOutputStream(output);
+            objectWriter.writeObject(msg);
+            objectWriter.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Procesa una petición, envía la respuesta y registra sus tiempos.
+     *
+     * @param output El flujo de salida del socket.
+     * @param msg La petición.
+     * @param binary El formato de la petición.
+     * @param start El momento desde el que se cuenta el tiempo total.
+     * @param decodeNanos El tiempo que costó leer la petición.
+     * @throws IOException Si falla la escritura.
+     */
+    private void respond(OutputStream output, Message msg, boolean binary, long start, long decodeNanos) throws IOException {
+        TipoMensaje request = msg.getTipo();
+        Message response = processAdmitted(msg);
+        long encodeStart = System.nanoTime();
+        writeMessage(output, response, binary);
+        long end = System.nanoTime();
+        RequestMetrics.recordExchange(request, response.getTipo(), end - start, decodeNanos, end - encodeStart);
+    }
+
+    /**
+     * Procesa una petición con correlación en el pool compartido y envía su
+     * respuesta al terminar. Si el pool está saturado responde
+     * {@link TipoMensaje#MAX_THREAD_USER} desde el hilo actual.
+     *
+     * @param output El flujo de salida del socket.
+     * @param msg La petición.
+     * @param binary El formato de la petición.
+     * @param inFlight Los permisos de peticiones en curso de esta conexión.
+     * @param start El momento desde el que se cuenta el tiempo total.
+     * @param decodeNanos El tiempo que costó leer la petición.
+     * @throws IOException Si falla la escritura del rechazo o se interrumpe la espera.
+     */
+    private void dispatchPipelined(OutputStream output, Message msg, boolean binary, Semaphore inFlight,
+            long start, long decodeNanos) throws IOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando las peticiones en curso");
+        }
+        try {
+            PipelineExecutorHolder.executor.execute(() -> {
+                try {
+                    respond(output, msg, binary, start, decodeNanos);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "No se pudo enviar la respuesta", e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            logger.warning("Pool de peticiones saturado, rechazando petición.");
+            TipoMensaje request = msg.getTipo();
+            msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+            long encodeStart = System.nanoTime();
+            writeMessage(output, msg, binary);
+            long end = System.nanoTime();
+            RequestMetrics.recordExchange(request, TipoMensaje.MAX_THREAD_USER, end - start, decodeNanos, end - encodeStart);
+        }
+    }
+
+    /**
+     * Espera a que terminen las peticiones en curso de la conexión, como mucho
+     * <code>CONNECTION_IDLE_TIMEOUT_MS</code>.
+     *
+     * @param inFlight Los permisos de peticiones en curso de esta conexión.
+     */
+    private static void awaitInFlight(Semaphore inFlight) {
+        try {
+            if (!inFlight.tryAcquire(PIPELINE_MAX_IN_FLIGHT, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warning("Cerrando la conexión con peticiones todavía en curso.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Crea el pool de hilos de las peticiones con correlación, con el mismo
+     * tamaño y cola que el pool de trabajadores. Los hilos son daemon para no
+     * impedir que el servidor termine.
+     *
+     * @return El pool de hilos.
+     */
+    private static ThreadPoolExecutor newPipelineExecutor() {
+        int threads = Integer.parseInt(config.getString("POOL_MAX_SIZE"));
+        int queueSize = Integer.parseInt(config.getString("POOL_QUEUE_SIZE"));
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "pipeline-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Crea el pool de hilos de los rechazos. Los hilos son daemon para no
+     * impedir que el servidor termine.
+     *
+     * @return El pool de hilos.
+     */
+    private static ThreadPoolExecutor newRejectExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadPoolExecutor(REJECT_THREADS, REJECT_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REJECT_QUEUE_SIZE), r -> {
+                    Thread thread = new Thread(r, "reject-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Procesa un mensaje ya leído y lo convierte en la respuesta para el cliente.
+     *
+     * <p>Determina el tipo de solicitud (inicio de sesión, registro o registro
+     * por lotes) y ejecuta las acciones correspondientes utilizando la capa de
+     * acceso a datos. Las excepciones específicas de las operaciones de usuario
+     * se traducen al {@link TipoMensaje} de la respuesta. Lo usan tanto {@link Worker} como
+     * {@link NioServer}. El tiempo se registra como la fase
+     * {@link RequestMetrics.Phase#DAO}.</p>
+     *
+     * @param msg El mensaje recibido del cliente.
+     * @return El mismo mensaje con el usuario y el tipo de respuesta.
+     */
+    static Message processMessage(Message msg) {
+        TipoMensaje request = msg.getTipo();
+        long start = System.nanoTime();
+        try {
+            if (msg.getTipo() == TipoMensaje.SIGN_UP_BATCH_REQUEST && msg.getUsers() != null) {
+                logger.log(Level.INFO, "Registrando lote de {0} usuarios", msg.getUsers().size());
+                List<User> users = msg.getUsers();
+                msg.setUsers(null); // La respuesta solo lleva los resultados, también si falla
+                msg.setResults(DaoFactory.getSignable().signUpBatch(users));
+                msg.setTipo(TipoMensaje.OK_RESPONSE);
+            // Verifica si el objeto de usuario no es nulo
+            } else if (msg.getUser() != null) {
+                String userEmail = msg.getUser().getEmail();
+                switch (msg.getTipo()) {
+                    case SIGN_IN_REQUEST:
+                        logger.log(Level.INFO, "Iniciando sesión para el usuario: {0}", userEmail);
+                        User user = DaoFactory.getSignable().signIn(msg.getUser());
+                        msg.setUser(user);
+                        if (user == null) {
+                            msg.setTipo(TipoMensaje.INCORRECT_CREDENTIALS_RESPONSE);
+                        } else {
+                            msg.setTipo(TipoMensaje.OK_RESPONSE);
+                        }
+                        break;
+
+                    case SIGN_UP_REQUEST:
+                        logger.log(Level.INFO, "Registrando usuario: {0}", userEmail);
+                        user = DaoFactory.getSignable().signUp(msg.getUser());
+                        msg.setUser(user);
+                        if (user == null) {
+                            msg.setTipo(TipoMensaje.EMAIL_EXISTS);
+                        } else {
+                            msg.setTipo(TipoMensaje.OK_RESPONSE);
+                        }
+                        break;
+
+                    default:
+                        logger.warning("Tipo de mensaje desconocido: " + msg.getTipo());
+                        msg.setTipo(TipoMensaje.SERVER_ERROR);
+                        break;
+                }
+            } else {
+                msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+                logger.warning("Máximo de usuarios alcanzado.");
+            }
         } catch (IncorrectCredentialsException e) {
+            // Resultado esperado de la petición, no un fallo del servidor
             msg.setTipo(TipoMensaje.INCORRECT_CREDENTIALS_RESPONSE);
-            logger.log(Level.SEVERE, "Credenciales incorrectas para el usuario: " + 
-                (msg.getUser() != null ? msg.getUser().getEmail() : "Usuario no especificado"), e);
+            logger.log(Level.FINE, "Credenciales incorrectas para el usuario: {0}",
+                    msg.getUser() != null ? msg.getUser().getEmail() : "Usuario no especificado");
         } catch (UserAlreadyExistsException e) {
             msg.setTipo(TipoMensaje.EMAIL_EXISTS);
-            logger.log(Level.SEVERE, "El usuario ya existe: " + 
-                (msg.getUser() != null ? msg.getUser().getEmail() : "Usuario no especificado"), e);
+            logger.log(Level.FINE, "El usuario ya existe: {0}",
+                    msg.getUser() != null ? msg.getUser().getEmail() : "Usuario no especificado");
         } catch (ConnectionException e) {
             msg.setTipo(TipoMensaje.CONNECTION_ERROR);
             logger.log(Level.SEVERE, "Error de conexión", e);
         } catch (ServerErrorException e) {
             msg.setTipo(TipoMensaje.SERVER_ERROR);
             logger.log(Level.SEVERE, "Error de conexión", e);
-        } catch (ClassNotFoundException e) {
-            msg.setTipo(TipoMensaje.SERVER_ERROR);
-            logger.log(Level.SEVERE, "Clase no encontrada", e);
-        } catch (IOException e) {
-            msg.setTipo(TipoMensaje.SERVER_ERROR);
-            logger.log(Level.SEVERE, "Error de entrada/salida", e);
         } catch (Exception ex) {
+            msg.setTipo(TipoMensaje.SERVER_ERROR);
             logger.log(Level.SEVERE, "Error inesperado", ex);
+        }
+        RequestMetrics.record(RequestMetrics.Phase.DAO, request, msg.getTipo(), System.nanoTime() - start);
+        return msg;
+    }
+
+    /**
+     * Procesa un mensaje respetando el máximo de usuarios concurrentes.
+     *
+     * <p>El hueco se reserva por petición y solo durante el acceso a la base de
+     * datos, así que una conexión persistente inactiva no ocupa ninguno. Lo usan
+     * {@link Worker} y {@link NioServer}.</p>
+     *
+     * @param msg El mensaje recibido del cliente.
+     * @return El mensaje de respuesta, con {@link TipoMensaje#MAX_THREAD_USER}
+     * si no hay huecos libres.
+     */
+    static Message processAdmitted(Message msg) {
+        if (!admissionGate.tryAcquire(ADMISSION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            logger.warning("Máximo de usuarios alcanzado, rechazando petición.");
+            msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+            return msg;
+        }
+        try {
+            return processMessage(msg);
+        } finally {
+            admissionGate.release();
+        }
+    }
+
+    /**
+     * Devuelve la puerta de admisión compartida por todos los trabajadores.
+     *
+     * @return La puerta de admisión con los contadores actual, máximo y de rechazos.
+     */
+    public static AdmissionGate getAdmissionGate() {
+        return admissionGate;
+    }
+
+    /**
+     * Responde al cliente con {@link TipoMensaje#MAX_THREAD_USER} sin procesar su petición.
+     *
+     * <p>Se usa cuando el pool de hilos está saturado. La petición se lee antes de
+     * responder, para contestar en su formato y que el cliente no reciba un
+     * reinicio de la conexión. Como puede tardar hasta
+     * <code>REJECT_TIMEOUT_MS</code>, se hace en un pool pequeño aparte y no en
+     * el hilo que acepta conexiones. Si ese pool también está lleno el socket
+     * se cierra sin responder.</p>
+     */
+    public void reject() {
+        try {
+            RejectExecutorHolder.executor.execute(this::respondRejected);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Demasiados clientes rechazados a la vez, cerrando la conexión sin responder.");
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Error al cerrar las conexiones", ex);
+            }
+        }
+    }
+
+    /**
+     * Lee la petición de un cliente rechazado y le responde
+     * {@link TipoMensaje#MAX_THREAD_USER}.
+     */
+    private void respondRejected() {
+        Message msg = new Message();
+        try {
+            socket.setSoTimeout(REJECT_TIMEOUT_MS);
+            msg = readMessage(new BufferedInputStream(socket.getInputStream()));
+        } catch (IOException | ClassNotFoundException e) {
+            logger.log(Level.WARNING, "No se pudo leer la petición del cliente rechazado", e);
+        }
+        try {
+            msg.setTipo(TipoMensaje.MAX_THREAD_USER);
+            writeMessage(socket.getOutputStream(), msg, binary);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error al responder al cliente rechazado", e);
         } finally {
             try {
-                logger.info("Cerrando conexiones");
-                objectWriter = new ObjectOutputStream(socket.getOutputStream());
-                objectWriter.writeObject(msg);
-                objectReader.close();
-                objectWriter.close();
                 socket.close();
             } catch (IOException ex) {
                 logger.log(Level.SEVERE, "Error al cerrar las conexiones", ex);
             }
-            clientCounter.decrement(); // Eliminar el cliente del contador
-            logger.info("Cliente eliminado. Número actual de clientes conectados: " + clientCounter.value());
         }
     }
 
@@ -0,0 +1,211 @@
+package Model;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Esta clase representa el pool de hilos que ejecuta los {@link Worker} del
+ * servidor.
+ *
+ * <p>En lugar de crear un hilo nuevo por cada conexión aceptada, el servidor
+ * entrega cada {@link Worker} a este pool, que tiene un número mínimo y máximo
+ * de hilos y una cola de admisión acotada. Cuando los hilos y la cola están
+ * llenos, la conexión no se descarta en silencio: se responde al cliente con
+ * {@link TipoMensaje#MAX_THREAD_USER}.</p>
+ *
+ * <p>Con <code>POOL_MODE=virtual</code> cada {@link Worker} se ejecuta en su
+ * propio hilo virtual. Como el proyecto compila para Java 8, el ejecutor de
+ * hilos virtuales se obtiene por reflexión y, si la JVM no lo ofrece, se usa el
+ * pool acotado.</p>
+ *
+ * <p>Los tamaños se leen del archivo <code>Utils.socketConfig</code> junto a
+ * <code>MAX_USERS</code>.</p>
+ *
+ * @author Borja
+ */
+public class WorkerPool {
+
+    private static final Logger logger = Logger.getLogger(WorkerPool.class.getName());
+
+    // Carga de configuraciones
+    private static final ResourceBundle config = ResourceBundle.getBundle("Utils.socketConfig");
+    private static final String MODE = config.getString("POOL_MODE");
+    private static final int CORE_SIZE = Integer.parseInt(config.getString("POOL_CORE_SIZE"));
+    private static final int MAX_SIZE = Integer.parseInt(config.getString("POOL_MAX_SIZE"));
+    private static final int QUEUE_SIZE = Integer.parseInt(config.getString("POOL_QUEUE_SIZE"));
+    private static final long KEEP_ALIVE_SECONDS = Long.parseLong(config.getString("POOL_KEEP_ALIVE_SECONDS"));
+
+    /**
+     * Modo de pool que usa un hilo virtual por cliente.
+     */
+    public static final String VIRTUAL_MODE = "virtual";
+
+    private final ExecutorService executor;
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * Crea el pool con el modo y los tamaños definidos en la configuración.
+     */
+    public WorkerPool() {
+        ExecutorService virtualExecutor = VIRTUAL_MODE.equalsIgnoreCase(MODE.trim()) ? newVirtualExecutor() : null;
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            logger.info("Pool de hilos virtuales creado.");
+        } else {
+            executor = newPlatformExecutor(CORE_SIZE, MAX_SIZE, QUEUE_SIZE, KEEP_ALIVE_SECONDS);
+        }
+    }
+
+    /**
+     * Crea un pool acotado de hilos de plataforma con los tamaños indicados.
+     *
+     * @param coreSize Número de hilos que se mantienen vivos aunque no haya trabajo.
+     * @param maxSize Número máximo de hilos que atienden clientes a la vez.
+     * @param queueSize Número de conexiones que pueden esperar a un hilo libre.
+     * @param keepAliveSeconds Segundos que un hilo sobrante espera antes de terminar.
+     */
+    public WorkerPool(int coreSize, int maxSize, int queueSize, long keepAliveSeconds) {
+        executor = newPlatformExecutor(coreSize, maxSize, queueSize, keepAliveSeconds);
+    }
+
+    /**
+     * Crea el pool acotado de hilos de plataforma.
+     */
+    private static ExecutorService newPlatformExecutor(int coreSize, int maxSize, int queueSize, long keepAliveSeconds) {
+        logger.info("Pool de hilos creado. Núcleo: " + coreSize + ", máximo: " + maxSize + ", cola: " + queueSize);
+        return new ThreadPoolExecutor(coreSize, maxSize, keepAliveSeconds, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new WorkerThreadFactory(), new MaxUserRejectionHandler());
+    }
+
+    /**
+     * Obtiene por reflexión <code>Executors.newVirtualThreadPerTaskExecutor()</code>.
+     *
+     * @return El ejecutor de hilos virtuales, o null si la JVM no lo ofrece.
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.log(Level.WARNING, "La JVM no soporta hilos virtuales, se usa el pool de hilos de plataforma.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Entrega un {@link Worker} al pool para que sea atendido.
+     *
+     * <p>Si el pool está saturado el cliente recibe
+     * {@link TipoMensaje#MAX_THREAD_USER} desde el hilo que llama.</p>
+     *
+     * @param worker El trabajador que maneja la conexión del cliente.
+     */
+    public void execute(Worker worker) {
+        // Una conexión inactiva deja su hilo si hay otras esperando en la cola
+        worker.setWaitingConnections(this::getQueuedCount);
+        try {
+            executor.execute(new CountedWorker(worker));
+        } catch (RejectedExecutionException e) {
+            // Solo ocurre si el pool ya se ha detenido
+            logger.warning("Pool de hilos detenido, rechazando nueva conexión.");
+            worker.reject();
+        }
+    }
+
+    /**
+     * Deja de aceptar trabajo nuevo y espera a que terminen los clientes en curso.
+     *
+     * @param timeoutSeconds Segundos máximos de espera.
+     */
+    public void shutdown(long timeoutSeconds) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Pool de hilos detenido.");
+    }
+
+    /**
+     * Devuelve el número de clientes que se están atendiendo.
+     *
+     * @return El número de trabajadores en ejecución.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Devuelve el número de conexiones que esperan un hilo libre.
+     *
+     * @return El tamaño actual de la cola de admisión, 0 con hilos virtuales.
+     */
+    public int getQueuedCount() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return 0;
+    }
+
+    /**
+     * Envoltorio que cuenta los trabajadores en ejecución.
+     */
+    private class CountedWorker implements Runnable {
+
+        private final Worker worker;
+
+        CountedWorker(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void run() {
+            activeCount.incrementAndGet();
+            try {
+                worker.run();
+            } finally {
+                activeCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Fábrica de hilos que les da un nombre reconocible en los logs.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "worker-" + threadNumber.getAndIncrement());
+        }
+    }
+
+    /**
+     * Política de rechazo que responde al cliente en lugar de descartar la conexión.
+     */
+    private static class MaxUserRejectionHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            logger.warning("Pool de hilos saturado, rechazando nueva conexión.");
+            if (r instanceof CountedWorker) {
+                ((CountedWorker) r).worker.reject();
+            }
+        }
+    }
+}
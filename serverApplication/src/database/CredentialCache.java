@@ -0,0 +1,288 @@
+package database;
+
+import Model.User;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché en memoria de los inicios de sesión correctos, por email.
+ *
+ * <p>Cada entrada guarda una huella de la contraseña verificada, no la
+ * contraseña, y los datos del partner que se devuelven al cliente. Un inicio
+ * de sesión con el mismo email y la misma contraseña antes de que caduque la
+ * entrada se responde sin consultar la base de datos; si la contraseña no
+ * coincide se consulta la base de datos, por si ha cambiado.</p>
+ *
+ * <p>La caché se reparte en segmentos, cada uno un mapa LRU con su propio
+ * cerrojo, para que los hilos de inicio de sesión no compitan por un único
+ * cerrojo. Cada segmento guarda como mucho su parte de la capacidad total y
+ * descarta la entrada usada hace más tiempo. Las entradas caducan a los
+ * <code>ttl</code> milisegundos, lo que acota cuánto tarda en notarse un
+ * cambio hecho fuera del servidor; los cambios que hace el servidor invalidan
+ * la entrada al momento.</p>
+ *
+ * <p>Con capacidad 0 la caché está desactivada y no guarda nada.</p>
+ *
+ * @author Alder
+ */
+public class CredentialCache {
+
+    /**
+     * Número de segmentos; potencia de dos.
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Sal aleatoria de las huellas, distinta en cada arranque del servidor.
+     */
+    private static final byte[] SALT = newSalt();
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Crea la caché.
+     *
+     * @param capacity Número máximo de entradas; 0 la desactiva.
+     * @param ttlMs Tiempo de vida de cada entrada en milisegundos.
+     */
+    public CredentialCache(int capacity, long ttlMs) {
+        this(capacity, ttlMs, System::nanoTime);
+    }
+
+    /**
+     * Crea la caché con un reloj dado, para las pruebas.
+     */
+    CredentialCache(int capacity, long ttlMs, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.clock = clock;
+        if (capacity <= 0) {
+            segments = new Segment[0];
+            return;
+        }
+        int count = Math.min(SEGMENTS, Integer.highestOneBit(capacity));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Reparte el resto para que la suma sea exactamente la capacidad
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return true si la caché guarda entradas.
+     */
+    public boolean isEnabled() {
+        return segments.length > 0;
+    }
+
+    /**
+     * Busca un inicio de sesión ya verificado. Si lo encuentra, completa el
+     * usuario con los datos guardados.
+     *
+     * @param user El usuario con el email y la contraseña recibidos.
+     * @return true si el usuario se ha completado desde la caché; false si hay
+     * que consultar la base de datos.
+     */
+    public boolean lookup(User user) {
+        if (!isEnabled() || user.getEmail() == null || user.getPassword() == null) {
+            return false;
+        }
+        Segment segment = segmentFor(user.getEmail());
+        CachedLogin entry;
+        synchronized (segment) {
+            entry = segment.get(user.getEmail());
+            if (entry != null && clock.getAsLong() - entry.created >= ttlNanos) {
+                segment.remove(user.getEmail());
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null || !MessageDigest.isEqual(entry.fingerprint, fingerprint(user.getPassword()))) {
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        user.setEmail(entry.login);
+        user.setName(entry.name);
+        user.setActivo(true);
+        user.setCompanyID(entry.companyId);
+        user.setCity(entry.city);
+        user.setStreet(entry.street);
+        user.setZip(entry.zip);
+        return true;
+    }
+
+    /**
+     * Guarda un inicio de sesión que la base de datos acaba de verificar.
+     *
+     * @param email El email con el que se ha iniciado sesión.
+     * @param user El usuario devuelto por la base de datos, con la contraseña.
+     */
+    public void put(String email, User user) {
+        if (!isEnabled() || email == null || user.getPassword() == null) {
+            return;
+        }
+        CachedLogin entry = new CachedLogin(fingerprint(user.getPassword()), user, clock.getAsLong());
+        Segment segment = segmentFor(email);
+        synchronized (segment) {
+            segment.put(email, entry);
+        }
+    }
+
+    /**
+     * Descarta la entrada de un email, por ejemplo porque se ha registrado o
+     * desactivado.
+     *
+     * @param email El email.
+     */
+    public void invalidate(String email) {
+        if (!isEnabled() || email == null) {
+            return;
+        }
+        Segment segment = segmentFor(email);
+        synchronized (segment) {
+            segment.remove(email);
+        }
+    }
+
+    /**
+     * Descarta todas las entradas.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return El número de entradas guardadas, incluidas las caducadas que aún
+     * no se han descartado.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * @return Un texto con los aciertos, fallos, descartes y el ratio de
+     * aciertos.
+     */
+    public String getStatistics() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format("Credential cache size: %d, hits: %d, misses: %d, evictions: %d, expirations: %d, hit ratio: %.2f",
+                size(), h, misses.get(), evictions.get(), expirations.get(), total == 0 ? 0.0 : (double) h / total);
+    }
+
+    private Segment segmentFor(String email) {
+        int hash = email.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static byte[] newSalt() {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Calcula la huella SHA-256 de una contraseña con la sal del proceso.
+     */
+    private static byte[] fingerprint(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SALT);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM incluyen SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Datos guardados de un inicio de sesión.
+     */
+    private static class CachedLogin {
+
+        final byte[] fingerprint;
+        final String login;
+        final String name;
+        final int companyId;
+        final String city;
+        final String street;
+        final int zip;
+        final long created;
+
+        CachedLogin(byte[] fingerprint, User user, long created) {
+            this.fingerprint = fingerprint;
+            this.login = user.getEmail();
+            this.name = user.getName();
+            this.companyId = user.getCompanyID();
+            this.city = user.getCity();
+            this.street = user.getStreet();
+            this.zip = user.getZip();
+            this.created = created;
+        }
+    }
+
+    /**
+     * Mapa LRU de un segmento; se usa siempre con su propio monitor.
+     */
+    private class Segment extends LinkedHashMap<String, CachedLogin> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLogin> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -3,16 +3,71 @@ package database;
 import exception.ConnectionException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Properties;
 import java.util.ResourceBundle;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 
 /**
  * Singleton class that manages a pool of database connections.
  * It provides methods to acquire and release database connections while managing
- * a stack of available connections and tracking active and idle connections.
+ * a deque of idle connections and tracking active and idle connections.
+ *
+ * <p>Borrowing and returning do not share a pool-wide lock. A fair
+ * {@link Semaphore} with one permit per connection bounds how many connections
+ * can be out at once: a borrower that finds no permit waits up to
+ * {@code pool.borrow.timeout.ms} and is served in arrival order when a
+ * connection comes back. Idle connections live in a concurrent deque used as a
+ * stack, so the most recently returned (warmest) connection is handed out first.</p>
+ *
+ * <p>Validation is kept off the request path. A background maintenance thread
+ * runs every {@code pool.validation.interval.ms}: it validates idle connections,
+ * closes those older than {@code pool.max.lifetime.ms} or idle for longer than
+ * {@code pool.idle.timeout.ms} (down to {@code pool.min.idle}), and opens new
+ * ones to keep {@code pool.min.idle} available. A borrow only validates a
+ * connection that has been idle for more than {@code pool.validate.idle.after.ms},
+ * and a return only validates when {@code pool.validate.on.return} is set.</p>
+ *
+ * <p>Each connection carries a bounded LRU {@link StatementCache} of up to
+ * {@code pool.statement.cache.size} prepared statements, obtained through
+ * {@link #prepareStatement(Connection, String)}. Together with the driver's
+ * {@code prepareThreshold} ({@code jdbc.prepare.threshold}) the database keeps
+ * the parsed and planned statements of the DAO queries.</p>
+ *
+ * <p>The pool publishes its metrics in the {@link MetricsRegistry}: the time
+ * borrowers wait for a connection, borrow timeouts, active, idle and waiting
+ * counts, and how many connections were opened, closed and validated.</p>
+ *
+ * <p>With {@code pool.leak.detection} set, every borrow records the borrowing
+ * thread, its stack and the DAO method that asked for the connection. The
+ * maintenance thread logs the stack of any connection held for longer than
+ * {@code pool.leak.threshold.ms}, and takes back the slot of one held for
+ * longer than {@code pool.leak.reclaim.ms} (0 never does), so a missing
+ * {@link #releaseConnection(Connection)} cannot shrink the pool for good. A
+ * reclaimed connection is only closed: its borrower sees an SQLException on
+ * its next call, and its statement cache, which only the borrower's thread
+ * touches, is dropped when the borrower releases it. A reclaimed connection
+ * that is never released is forgotten after ten times
+ * {@code pool.leak.reclaim.ms}, so a real leak does not keep it and its
+ * borrow trace for good. Work that legitimately
+ * holds a connection for long borrows it with
+ * {@link #getLongRunningConnection()}, which is neither reported nor
+ * reclaimed. Hold times are published per caller as
+ * {@code db_pool_hold_seconds}.</p>
  * @author Adrian y Omar 
  */
 public class DBPool {
@@ -29,23 +84,113 @@ public class DBPool {
     /** The database connection URL. */
     private String url;
 
-    /** Stack of available database connections. */
-    private static Stack<Connection> connectionStack = new Stack<>();
+    /** Idle database connections, used as a stack. */
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+
+    /** Connections currently borrowed from the pool. */
+    private final ConcurrentHashMap<Connection, PooledConnection> borrowedConnections = new ConcurrentHashMap<>();
+
+    /** Borrowed connections closed by the leak check and not yet released by their borrower. */
+    private final ConcurrentHashMap<Connection, PooledConnection> reclaimedConnections = new ConcurrentHashMap<>();
 
     /** Maximum number of connections allowed in the pool. */
     private int maxConnections;
 
-    /** Counter for currently active connections. */
-    private int activeConnections = 0;
+    /** Maximum time in milliseconds a borrower waits for a free connection. */
+    private long borrowTimeoutMs;
+
+    /** Interval in milliseconds between background maintenance runs. */
+    private long validationIntervalMs;
+
+    /** Maximum lifetime in milliseconds of a physical connection. */
+    private long maxLifetimeMs;
+
+    /** Idle time in milliseconds after which surplus idle connections are closed. */
+    private long idleTimeoutMs;
+
+    /** Number of idle connections the maintenance thread keeps open. */
+    private int minIdle;
+
+    /** Idle time in milliseconds after which a borrow validates the connection; negative disables it. */
+    private long validateIdleAfterMs;
+
+    /** Whether connections are validated against the database when returned. */
+    private boolean validateOnReturn;
+
+    /** Maximum number of prepared statements cached per connection. */
+    private int statementCacheSize;
+
+    /** Whether borrows record their thread, stack and caller. */
+    private boolean leakDetection;
+
+    /** Hold time in milliseconds after which a borrowed connection is reported as a possible leak. */
+    private long leakThresholdMs;
+
+    /** Hold time in milliseconds after which a borrowed connection is reclaimed; 0 disables it. */
+    private long leakReclaimMs;
+
+    /** Hold time of borrowed connections by caller, only filled when leaks are tracked. */
+    private final ConcurrentHashMap<String, Timer> holdTimes = new ConcurrentHashMap<>();
+
+    /** Driver properties used to open connections: user, password and prepare threshold. */
+    private final Properties connectionProperties = new Properties();
+
+    /** Number of prepared statements served from a cache. */
+    private final AtomicLong statementCacheHits = new AtomicLong();
+
+    /** Number of prepared statements that had to be prepared. */
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /** Time borrowers wait for a connection permit. */
+    private final Timer borrowWait = MetricsRegistry.getInstance().timer("db_pool_borrow_wait_seconds");
+
+    /** Borrows that gave up after {@code pool.borrow.timeout.ms}. */
+    private final LongAdder borrowTimeouts = MetricsRegistry.getInstance().counter("db_pool_borrow_timeouts_total");
+
+    /** Physical connections opened. */
+    private final LongAdder connectionsCreated = MetricsRegistry.getInstance().counter("db_pool_connections_created_total");
+
+    /** Physical connections closed. */
+    private final LongAdder connectionsClosed = MetricsRegistry.getInstance().counter("db_pool_connections_closed_total");
+
+    /** Validations against the database that found the connection valid. */
+    private final LongAdder validationsPassed = MetricsRegistry.getInstance().counter("db_pool_validations_total", "result", "valid");
+
+    /** Validations against the database that found the connection invalid. */
+    private final LongAdder validationsFailed = MetricsRegistry.getInstance().counter("db_pool_validations_total", "result", "invalid");
+
+    /** Borrowed connections reported as possible leaks. */
+    private final LongAdder leaksReported = MetricsRegistry.getInstance().counter("db_pool_leaks_total", "action", "reported");
+
+    /** Borrowed connections closed and taken back after {@code pool.leak.reclaim.ms}. */
+    private final LongAdder leaksReclaimed = MetricsRegistry.getInstance().counter("db_pool_leaks_total", "action", "reclaimed");
+
+    /** Single daemon thread running the pool maintenance. */
+    private ScheduledExecutorService maintenance;
+
+    /** One permit per connection that may be borrowed; fair so waiters are served in order. */
+    private Semaphore permits;
 
-    /** Counter for currently idle connections. */
-    private int idleConnections = 0;
+    /** Number of open physical connections, idle or borrowed. */
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    /** Set once {@link #releaseAllConnections()} has shut the pool down. */
+    private volatile boolean closed = false;
 
     /** Singleton instance of the DBPool. */
-    private static DBPool instance;
+    private static volatile DBPool instance;
+
+    /** Lock guarding the creation of the singleton instance. */
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
 
     private static final Logger LOGGER = Logger.getLogger(DBPool.class.getName());
 
+    /**
+     * Multiple of {@code pool.leak.reclaim.ms}, counted from the borrow, after
+     * which a reclaimed connection that was never released is forgotten.
+     */
+    private static final int RECLAIMED_RETENTION_FACTOR = 10;
+
     /**
      * Private constructor to prevent instantiation from outside.
      * Loads the configuration and initializes the connections.
@@ -53,8 +198,21 @@ public class DBPool {
      * @throws ConnectionException if there is an error during connection initialization.
      */
     private DBPool() throws ConnectionException {
-        loadConfiguration();
+        this(ResourceBundle.getBundle("config.config"));
+    }
+
+    /**
+     * Creates a pool with the given configuration instead of
+     * {@code config.config}. Used by tests.
+     *
+     * @param config the pool configuration.
+     * @throws ConnectionException if there is an error during connection initialization.
+     */
+    DBPool(ResourceBundle config) throws ConnectionException {
+        loadConfiguration(config);
         initializeConnections();
+        startMaintenance();
+        registerGauges();
     }
 
     /**
@@ -63,29 +221,55 @@ public class DBPool {
      * @return the single instance of DBPool.
      * @throws ConnectionException if there is an error during connection initialization.
      */
-    public static synchronized DBPool getInstance() throws ConnectionException {
-        if (instance == null) {
-            instance = new DBPool();
+    public static DBPool getInstance() throws ConnectionException {
+        DBPool pool = instance;
+        if (pool == null) {
+            INSTANCE_LOCK.lock();
+            try {
+                pool = instance;
+                if (pool == null) {
+                    pool = new DBPool();
+                    instance = pool;
+                }
+            } finally {
+                INSTANCE_LOCK.unlock();
+            }
         }
-        return instance;
+        return pool;
     }
 
     /**
      * Loads the database configuration from a properties file.
-     * Sets the database URL, username, password, and max connections.
+     * Sets the database URL, username, password, max connections, borrow timeout
+     * and maintenance settings.
      *
+     * @param config the configuration bundle.
      * @throws RuntimeException if any required configuration is missing.
      */
     
  
-    private void loadConfiguration() {
+    private void loadConfiguration(ResourceBundle config) {
         LOGGER.info("Start loading Database configuration");
-        configFile = ResourceBundle.getBundle("config.config");
+        configFile = config;
         url = configFile.getString("jdbc.url");
         db_user = configFile.getString("db.user");
         db_pass =configFile.getString("db.password");
         maxConnections =Integer.parseInt(configFile.getString("max.connections"));
-       // maxConnections = 3;
+        borrowTimeoutMs = Long.parseLong(configFile.getString("pool.borrow.timeout.ms"));
+        permits = new Semaphore(maxConnections, true);
+        validationIntervalMs = Long.parseLong(configFile.getString("pool.validation.interval.ms"));
+        maxLifetimeMs = Long.parseLong(configFile.getString("pool.max.lifetime.ms"));
+        idleTimeoutMs = Long.parseLong(configFile.getString("pool.idle.timeout.ms"));
+        minIdle = Math.min(maxConnections, Integer.parseInt(configFile.getString("pool.min.idle")));
+        validateIdleAfterMs = Long.parseLong(configFile.getString("pool.validate.idle.after.ms"));
+        validateOnReturn = Boolean.parseBoolean(configFile.getString("pool.validate.on.return"));
+        statementCacheSize = Integer.parseInt(configFile.getString("pool.statement.cache.size"));
+        leakDetection = Boolean.parseBoolean(configFile.getString("pool.leak.detection"));
+        leakThresholdMs = Long.parseLong(configFile.getString("pool.leak.threshold.ms"));
+        leakReclaimMs = Long.parseLong(configFile.getString("pool.leak.reclaim.ms"));
+        connectionProperties.setProperty("user", db_user);
+        connectionProperties.setProperty("password", db_pass);
+        connectionProperties.setProperty("prepareThreshold", configFile.getString("jdbc.prepare.threshold"));
 
         if (url == null || db_user == null || db_pass == null) {
             throw new RuntimeException("Missing required configuration for database connection.");
@@ -94,16 +278,17 @@ public class DBPool {
     }
 
     /**
-     * Initializes the database connections and pushes them onto the stack.
+     * Initializes the database connections and pushes them onto the idle deque.
      *
      * @throws ConnectionException if there is an error initializing connections.
      */
     private void initializeConnections() throws ConnectionException {
         for (int i = 0; i < maxConnections; i++) {
             try {
-                Connection con = DriverManager.getConnection(url, db_user, db_pass);
-                connectionStack.push(con);
-                idleConnections++;
+                if (!reserveConnection()) {
+                    break;
+                }
+                idleConnections.offerFirst(createConnection());
             } catch (SQLException ex) {
                 LOGGER.log(Level.SEVERE, "Error initializing connection", ex);
                 throw new ConnectionException("Error database connection");
@@ -112,6 +297,217 @@ public class DBPool {
         LOGGER.info("Connections initialized successfully.");
     }
 
+    /**
+     * Publishes the pool occupancy and statement cache counters.
+     */
+    private void registerGauges() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("db_pool_connections", borrowedConnections::size, "state", "active");
+        metrics.gauge("db_pool_connections", idleConnections::size, "state", "idle");
+        metrics.gauge("db_pool_connections", totalConnections::get, "state", "open");
+        metrics.gauge("db_pool_connections_max", () -> maxConnections);
+        metrics.gauge("db_pool_waiting", permits::getQueueLength);
+        metrics.counter("db_pool_statement_cache_total", statementCacheHits::get, "result", "hit");
+        metrics.counter("db_pool_statement_cache_total", statementCacheMisses::get, "result", "miss");
+    }
+
+    /**
+     * Reserves room for one more physical connection, so that concurrent
+     * borrowers and the maintenance thread never open more than
+     * {@code max.connections} between them.
+     *
+     * @return true if the caller may open a connection with
+     * {@link #createConnection()}.
+     */
+    private boolean reserveConnection() {
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= maxConnections) {
+                return false;
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
+        return true;
+    }
+
+    /**
+     * Opens a new physical connection in a slot taken with
+     * {@link #reserveConnection()}. The slot is given back if it fails.
+     *
+     * @return the new connection.
+     * @throws SQLException if the connection cannot be opened.
+     */
+    private PooledConnection createConnection() throws SQLException {
+        try {
+            Connection con = DriverManager.getConnection(url, connectionProperties);
+            connectionsCreated.increment();
+            return new PooledConnection(con, statementCacheSize);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes a physical connection and stops counting it.
+     *
+     * @param pooled the connection to close.
+     */
+    private void destroyConnection(PooledConnection pooled) {
+        pooled.getStatementCache().closeAll();
+        closeConnection(pooled);
+    }
+
+    /**
+     * Closes a physical connection and stops counting it, leaving its
+     * statement cache alone.
+     *
+     * @param pooled the connection to close.
+     */
+    private void closeConnection(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        connectionsClosed.increment();
+        try {
+            pooled.getConnection().close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error closing connection", e);
+        }
+    }
+
+    /**
+     * Starts the background maintenance thread.
+     */
+    private void startMaintenance() {
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, validationIntervalMs, validationIntervalMs, TimeUnit.MILLISECONDS);
+        if (leakDetection) {
+            long limitMs = leakReclaimMs > 0 ? Math.min(leakThresholdMs, leakReclaimMs) : leakThresholdMs;
+            long periodMs = Math.max(100, limitMs / 2);
+            maintenance.scheduleWithFixedDelay(this::checkLeaks, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reports connections held for longer than {@code pool.leak.threshold.ms}
+     * and reclaims those held for longer than {@code pool.leak.reclaim.ms}.
+     * A reclaimed connection is closed rather than reused, since its borrower
+     * may still be using it, and its permit is given back to the pool. Its
+     * statement cache is not touched here: the borrower may be using it.
+     * Reclaimed connections still not released after
+     * {@code RECLAIMED_RETENTION_FACTOR} times the reclaim limit are dropped.
+     */
+    private void checkLeaks() {
+        try {
+            long now = System.nanoTime();
+            for (PooledConnection pooled : borrowedConnections.values()) {
+                if (pooled.isLongRunning()) {
+                    continue;
+                }
+                long heldMs = TimeUnit.NANOSECONDS.toMillis(pooled.getHoldTime(now));
+                if (leakReclaimMs > 0 && heldMs > leakReclaimMs) {
+                    // Only one of this and releaseConnection can remove it
+                    if (borrowedConnections.remove(pooled.getConnection(), pooled)) {
+                        reclaimedConnections.put(pooled.getConnection(), pooled);
+                        recordHoldTime(pooled, now);
+                        leaksReclaimed.increment();
+                        LOGGER.log(Level.WARNING, "Connection borrowed by " + pooled.getCaller() + " reclaimed after "
+                                + heldMs + " ms without being released.", pooled.getBorrowTrace());
+                        closeConnection(pooled);
+                        permits.release();
+                    }
+                } else if (heldMs > leakThresholdMs && pooled.markLeakReported()) {
+                    leaksReported.increment();
+                    LOGGER.log(Level.WARNING, "Possible connection leak: borrowed by " + pooled.getCaller()
+                            + " " + heldMs + " ms ago.", pooled.getBorrowTrace());
+                }
+            }
+            long retentionNanos = TimeUnit.MILLISECONDS.toNanos(leakReclaimMs * RECLAIMED_RETENTION_FACTOR);
+            reclaimedConnections.values().removeIf(pooled -> pooled.getHoldTime(now) > retentionNanos);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error checking for connection leaks", e);
+        }
+    }
+
+    /**
+     * Records how long a connection was borrowed under the method that borrowed it.
+     *
+     * @param pooled the connection that is no longer borrowed.
+     * @param now the current time in nanoseconds.
+     */
+    private void recordHoldTime(PooledConnection pooled, long now) {
+        String caller = pooled.getCaller();
+        if (caller == null) {
+            return;
+        }
+        Timer timer = holdTimes.get(caller);
+        if (timer == null) {
+            timer = holdTimes.computeIfAbsent(caller,
+                    c -> MetricsRegistry.getInstance().timer("db_pool_hold_seconds", "caller", c));
+        }
+        timer.record(pooled.getHoldTime(now));
+    }
+
+    /**
+     * Validates, evicts and tops up idle connections.
+     * Each idle connection is taken out of the deque while it is checked, so a
+     * borrower can never receive a connection that is being validated.
+     */
+    private void maintain() {
+        try {
+            for (PooledConnection pooled : idleConnections.toArray(new PooledConnection[0])) {
+                if (closed || !idleConnections.removeFirstOccurrence(pooled)) {
+                    // Borrowed in the meantime
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                if (pooled.getAge(now) > maxLifetimeMs) {
+                    destroyConnection(pooled);
+                    LOGGER.fine("Connection closed after reaching its maximum lifetime.");
+                } else if (pooled.getIdleTime(now) > idleTimeoutMs && idleConnections.size() >= minIdle) {
+                    destroyConnection(pooled);
+                    LOGGER.fine("Idle connection evicted.");
+                } else if (pooled.getUncheckedTime(now) >= validationIntervalMs) {
+                    if (isValidConnection(pooled.getConnection())) {
+                        pooled.validated();
+                        idleConnections.offerLast(pooled);
+                    } else {
+                        destroyConnection(pooled);
+                        LOGGER.info("Invalid idle connection discarded.");
+                    }
+                } else {
+                    // Checked connections go back to the cold end of the stack
+                    idleConnections.offerLast(pooled);
+                }
+            }
+            topUpIdleConnections();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error during pool maintenance", e);
+        }
+    }
+
+    /**
+     * Opens connections until {@code pool.min.idle} are idle, without going over
+     * {@code max.connections} in total.
+     */
+    private void topUpIdleConnections() {
+        while (!closed && idleConnections.size() < minIdle) {
+            if (!reserveConnection()) {
+                return;
+            }
+            try {
+                PooledConnection pooled = createConnection();
+                idleConnections.offerLast(pooled);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error opening idle connection", e);
+                return;
+            }
+        }
+    }
+
     /**
      * Checks if a given connection is valid.
      *
@@ -119,88 +515,247 @@ public class DBPool {
      * @return true if the connection is valid, false otherwise.
      */
     private boolean isValidConnection(Connection con) {
+        boolean valid;
         try {
-            return con != null && !con.isClosed() && con.isValid(2);
+            valid = con != null && !con.isClosed() && con.isValid(2);
         } catch (SQLException e) {
-            return false;
+            valid = false;
         }
+        (valid ? validationsPassed : validationsFailed).increment();
+        return valid;
     }
 
     /**
      * Acquires a database connection from the pool.
      *
+     * <p>If every connection is borrowed, waits up to {@code pool.borrow.timeout.ms}
+     * for one to be released. A connection idle for longer than
+     * {@code pool.validate.idle.after.ms} is validated first and replaced with a
+     * new one if it is no longer valid.</p>
+     *
      * @return a valid database connection.
-     * @throws ConnectionException if there are no available connections.
-     */
-    public synchronized Connection getConnection() throws ConnectionException {
-        if (connectionStack.isEmpty()) {
-            if (activeConnections < maxConnections) {
-                try {
-                    Connection con = DriverManager.getConnection(url, db_user, db_pass);
-                    activeConnections++;
-                    LOGGER.info("New connection created. Active connections: " + activeConnections);
-                    return con;
-                } catch (SQLException ex) {
-                    throw new ConnectionException(ex.getMessage());
-                }
-            } else {
+     * @throws ConnectionException if no connection becomes available in time
+     * or a new connection cannot be opened.
+     */
+    public Connection getConnection() throws ConnectionException {
+        return borrow(false);
+    }
+
+    /**
+     * Acquires a connection for work that may hold it for longer than
+     * {@code pool.leak.reclaim.ms}, such as a full table scan. The borrow is
+     * neither reported as a leak nor reclaimed, so it must be released in a
+     * finally block like any other.
+     *
+     * @return a valid database connection.
+     * @throws ConnectionException if no connection becomes available in time
+     * or a new connection cannot be opened.
+     */
+    public Connection getLongRunningConnection() throws ConnectionException {
+        return borrow(true);
+    }
+
+    /**
+     * Borrows a connection, waiting for a permit and opening one if needed.
+     *
+     * @param longRunning whether the borrow is exempt from leak checks.
+     * @return a valid database connection.
+     * @throws ConnectionException if no connection becomes available in time
+     * or a new connection cannot be opened.
+     */
+    private Connection borrow(boolean longRunning) throws ConnectionException {
+        if (closed) {
+            throw new ConnectionException("Connection pool is closed.");
+        }
+        long waitStart = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+            borrowWait.record(System.nanoTime() - waitStart);
+            if (!acquired) {
+                borrowTimeouts.increment();
                 throw new ConnectionException("Maximum number of connections reached, please wait.");
             }
-        } else {
-            Connection con = connectionStack.pop();
-            if (!isValidConnection(con)) {
-                try {
-                    con = DriverManager.getConnection(url, db_user, db_pass);
-                    activeConnections++;
-                    LOGGER.info("Invalid connection replaced with a new one. Active connections: " + activeConnections);
-                } catch (SQLException ex) {
-                    throw new ConnectionException(ex.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for a connection.");
+        }
+        try {
+            PooledConnection pooled = idleConnections.pollFirst();
+            if (pooled != null && needsValidationOnBorrow(pooled)) {
+                if (isValidConnection(pooled.getConnection())) {
+                    pooled.validated();
+                } else {
+                    destroyConnection(pooled);
+                    pooled = null;
+                    LOGGER.info("Invalid idle connection discarded.");
                 }
             }
-            idleConnections--;
-            LOGGER.info("Connection acquired from stack. Idle connections: " + idleConnections);
-            return con;
+            if (pooled == null) {
+                pooled = openOrAwaitIdle(waitStart);
+            }
+            pooled.touch();
+            pooled.borrowed(leakDetection, longRunning);
+            borrowedConnections.put(pooled.getConnection(), pooled);
+            return pooled.getConnection();
+        } catch (SQLException ex) {
+            permits.release();
+            throw new ConnectionException(ex.getMessage());
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets a connection for a borrower that holds a permit but found no idle
+     * connection. Opens a new one if there is room; otherwise every slot is
+     * taken by a connection the maintenance thread is checking, so waits for
+     * it to come back or be closed, until {@code pool.borrow.timeout.ms}.
+     *
+     * @param waitStart the time in nanoseconds at which the borrow started.
+     * @return the connection.
+     * @throws SQLException if no connection is available in time or a new
+     * connection cannot be opened.
+     */
+    private PooledConnection openOrAwaitIdle(long waitStart) throws SQLException {
+        long deadline = waitStart + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        while (true) {
+            if (reserveConnection()) {
+                PooledConnection pooled = createConnection();
+                LOGGER.log(Level.INFO, "New connection created. Total connections: {0}", totalConnections.get());
+                return pooled;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SQLException("Maximum number of connections reached, please wait.");
+            }
+            try {
+                PooledConnection pooled = idleConnections.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(50)),
+                        TimeUnit.NANOSECONDS);
+                if (pooled != null) {
+                    return pooled;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection.");
+            }
         }
     }
 
     /**
      * Releases a database connection back to the pool.
+     * Connections that were not borrowed from this pool, or are released twice,
+     * are ignored.
      *
      * @param con the connection to release.
      */
-    public synchronized void releaseConnection(Connection con) {
-        if (con != null) {
-            if (isValidConnection(con)) {
-                connectionStack.push(con);
-                idleConnections++;
-                LOGGER.info("Connection released back to pool. Idle connections: " + idleConnections);
-            } else {
-                try {
-                    con.close();
-                    activeConnections--;
-                    LOGGER.info("Invalid connection closed. Active connections: " + activeConnections);
-                } catch (SQLException e) {
-                    LOGGER.log(Level.WARNING, "Error closing invalid connection", e);
-                }
+    public void releaseConnection(Connection con) {
+        PooledConnection pooled = con == null ? null : borrowedConnections.remove(con);
+        if (pooled == null) {
+            PooledConnection reclaimed = con == null ? null : reclaimedConnections.remove(con);
+            if (reclaimed != null) {
+                // The slot was already given back; only the borrower may touch the cache
+                reclaimed.getStatementCache().closeAll();
+                LOGGER.log(Level.INFO, "Connection reclaimed from {0} was released after {1} ms.",
+                        new Object[]{reclaimed.getCaller(),
+                            TimeUnit.NANOSECONDS.toMillis(reclaimed.getHoldTime(System.nanoTime()))});
+            }
+            return;
+        }
+        if (leakDetection) {
+            long now = System.nanoTime();
+            recordHoldTime(pooled, now);
+            if (pooled.isLeakReported()) {
+                LOGGER.log(Level.INFO, "Connection reported as a possible leak was released by {0} after {1} ms.",
+                        new Object[]{pooled.getCaller(), TimeUnit.NANOSECONDS.toMillis(pooled.getHoldTime(now))});
             }
         }
+        pooled.getStatementCache().releaseUncached();
+        if (!closed && isReusable(pooled)) {
+            pooled.touch();
+            idleConnections.offerFirst(pooled);
+        } else {
+            destroyConnection(pooled);
+            LOGGER.log(Level.INFO, "Connection closed on release. Total connections: {0}", totalConnections.get());
+        }
+        permits.release();
     }
 
     /**
-     * Releases all database connections and clears the connection stack.
+     * Gets a prepared statement for a borrowed connection, reusing the one
+     * cached on that connection for the same SQL text if there is one.
+     *
+     * <p>The caller must not close the statement: it stays in the cache and is
+     * closed together with the connection. Result sets must still be closed.</p>
+     *
+     * @param con a connection borrowed from this pool.
+     * @param sql the SQL text.
+     * @return the prepared statement.
+     * @throws SQLException if the statement cannot be prepared.
      */
-    public synchronized void releaseAllConnections() {
-        for (Connection con : connectionStack) {
-            try {
-                con.close();
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Error closing connection", e);
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PooledConnection pooled = borrowedConnections.get(con);
+        if (pooled == null) {
+            if (reclaimedConnections.containsKey(con)) {
+                throw new SQLException("Connection was reclaimed by the pool after " + leakReclaimMs + " ms.");
             }
+            throw new SQLException("Connection was not borrowed from this pool.");
+        }
+        StatementCache cache = pooled.getStatementCache();
+        PreparedStatement ps = cache.get(sql);
+        if (ps != null) {
+            statementCacheHits.incrementAndGet();
+            return ps;
+        }
+        statementCacheMisses.incrementAndGet();
+        return cache.prepare(con, sql);
+    }
+
+    /**
+     * Tells whether a borrow must validate the connection against the database.
+     *
+     * @param pooled the idle connection about to be borrowed.
+     * @return true if it has gone unused and unvalidated for longer than
+     * {@code pool.validate.idle.after.ms}.
+     */
+    private boolean needsValidationOnBorrow(PooledConnection pooled) {
+        return validateIdleAfterMs >= 0 && pooled.getUncheckedTime(System.currentTimeMillis()) > validateIdleAfterMs;
+    }
+
+    /**
+     * Tells whether a returned connection can go back to the idle deque.
+     * Only asks the database when {@code pool.validate.on.return} is set;
+     * otherwise the local closed flag and the maximum lifetime are enough.
+     *
+     * @param pooled the returned connection.
+     * @return true if the connection can be reused.
+     */
+    private boolean isReusable(PooledConnection pooled) {
+        if (pooled.getAge(System.currentTimeMillis()) > maxLifetimeMs) {
+            return false;
+        }
+        if (validateOnReturn) {
+            return isValidConnection(pooled.getConnection());
+        }
+        try {
+            return !pooled.getConnection().isClosed();
+        } catch (SQLException e) {
+            return false;
         }
-        connectionStack.clear();
-        activeConnections = 0;
-        idleConnections = 0;
-        LOGGER.info("All connections released. Active connections reset to 0.");
+    }
+
+    /**
+     * Releases all idle database connections and closes the pool.
+     * Connections still borrowed are closed when they are released.
+     */
+    public void releaseAllConnections() {
+        closed = true;
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            destroyConnection(pooled);
+        }
+        LOGGER.info("All connections released. Active connections: " + borrowedConnections.size());
     }
 
     /**
@@ -208,20 +763,30 @@ public class DBPool {
      *
      * @return a string summarizing total, active, and idle connections.
      */
-    public synchronized String getConnectionStatistics() {
-        return String.format("Total Connections: %d, Active: %d, Idle: %d",
-                (activeConnections + idleConnections),
-                activeConnections,
-                idleConnections);
+    public String getConnectionStatistics() {
+        return String.format("Total Connections: %d, Active: %d, Idle: %d, Waiting: %d",
+                totalConnections.get(),
+                borrowedConnections.size(),
+                idleConnections.size(),
+                permits.getQueueLength());
     }
 
     /**
      * Gets the count of active connections.
      *
-     * @return the number of active connections.
+     * @return the number of borrowed connections.
+     */
+    public int getActiveConnectionCount() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * Gets the maximum number of connections the pool may open.
+     *
+     * @return the configured pool size.
      */
-    public synchronized int getActiveConnectionCount() {
-        return activeConnections;
+    public int getMaxConnections() {
+        return maxConnections;
     }
 
     /**
@@ -229,7 +794,56 @@ public class DBPool {
      *
      * @return the number of idle connections.
      */
-    public synchronized int getIdleConnectionCount() {
-        return idleConnections;
+    public int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Gets statistics about the prepared statement caches.
+     *
+     * @return a string with the hits, misses and hit ratio.
+     */
+    public String getStatementCacheStatistics() {
+        long hits = statementCacheHits.get();
+        long misses = statementCacheMisses.get();
+        long total = hits + misses;
+        return String.format("Statement cache hits: %d, misses: %d, hit ratio: %.2f",
+                hits, misses, total == 0 ? 0.0 : (double) hits / total);
+    }
+
+    /**
+     * Gets the number of prepared statements served from a cache.
+     *
+     * @return the number of cache hits.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Gets the number of prepared statements that had to be prepared.
+     *
+     * @return the number of cache misses.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Gets the number of threads waiting for a connection.
+     *
+     * @return an estimate of the number of waiting borrowers.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Gets the number of reclaimed connections not yet released by their borrower.
+     *
+     * @return the number of reclaimed connections still tracked.
+     */
+    int getReclaimedCount() {
+        return reclaimedConnections.size();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package database;
 
 import ISignable.Signable;
+import java.util.ResourceBundle;
 
 /**
  * La clase <code>DaoFactory</code> es una fábrica para crear instancias
@@ -12,14 +13,24 @@ import ISignable.Signable;
  * <code>Signable</code>, que se utiliza para realizar operaciones de
  * acceso a datos relacionadas con usuarios.</p>
  *
+ * <p>Con <code>dao.backend=memory</code> en <code>config.config</code> se
+ * devuelve un {@link InMemoryUserDao} en lugar del DAO de PostgreSQL, para
+ * hacer pruebas de carga sin base de datos.</p>
+ *
  * <p>Se garantiza que las instancias de los DAOs sean creadas de forma
- * segura en un entorno multihilo mediante sincronización.</p>
+ * segura en un entorno multihilo mediante una clase contenedora que la JVM
+ * inicializa una sola vez, sin bloquear en cada llamada.</p>
  *
  * @author Alder, Omar
  */
 public class DaoFactory {
 
-    private static Signable signable = null;
+    /**
+     * Contenedor de la instancia única; se inicializa en el primer uso.
+     */
+    private static class SignableHolder {
+        private static final Signable signable = isInMemory() ? new InMemoryUserDao() : new UserDao();
+    }
 
     /**
      * Obtiene una instancia del objeto <code>Signable</code>. Si la instancia
@@ -27,9 +38,16 @@ public class DaoFactory {
      *
      * @return Una instancia de <code>Signable</code>.
      */
-    public synchronized static Signable getSignable() {
-        if (signable == null) 
-            signable = new UserDao();
-        return signable;
+    public static Signable getSignable() {
+        return SignableHolder.signable;
+    }
+
+    /**
+     * Indica si la configuración pide la base de datos en memoria.
+     *
+     * @return true si <code>dao.backend</code> es <code>memory</code>.
+     */
+    public static boolean isInMemory() {
+        return "memory".equalsIgnoreCase(ResourceBundle.getBundle("config.config").getString("dao.backend").trim());
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package database;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de textos, pensado para los emails registrados.
+ *
+ * <p>{@link #mightContain(String)} nunca devuelve false para un texto añadido;
+ * para uno no añadido devuelve true con una probabilidad cercana a la pedida
+ * mientras no se añadan más textos de los previstos. Los bits se guardan en un
+ * {@link AtomicLongArray}, así que se puede añadir y consultar desde varios
+ * hilos sin cerrojos.</p>
+ *
+ * @author Omar
+ */
+public class EmailBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Crea un filtro vacío.
+     *
+     * @param expected Número de textos previstos.
+     * @param falsePositiveRate Probabilidad de falso positivo buscada, entre 0
+     * y 1.
+     */
+    public EmailBloomFilter(long expected, double falsePositiveRate) {
+        long n = Math.max(1, expected);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Añade un texto al filtro.
+     *
+     * @param value El texto.
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = words.get(index)) & mask) == 0) {
+                if (words.compareAndSet(index, word, word | mask)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si un texto puede estar en el filtro.
+     *
+     * @param value El texto.
+     * @return false si seguro que no se ha añadido.
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return El tamaño del filtro en bits.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return El número de funciones hash por texto.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los caracteres del texto.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Mezcla final de MurmurHash3 para repartir los bits.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
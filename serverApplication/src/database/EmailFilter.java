@@ -0,0 +1,277 @@
+package database;
+
+import exception.ConnectionException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Filtro de los logins registrados que usa {@link UserDao} para no consultar
+ * la base de datos con emails que seguro que no existen.
+ *
+ * <p>El filtro se carga en segundo plano con los logins de 'res_users', que
+ * son los que comparan el inicio de sesión y el registro. Los registros hechos
+ * por el servidor se añaden al momento, también al filtro que se está
+ * reconstruyendo. Cada <code>dao.email.filter.refresh.ms</code> milisegundos
+ * se añaden las filas con un id mayor que el último leído, así que una cuenta
+ * creada fuera del servidor, por ejemplo por el importador, puede recibir
+ * credenciales incorrectas durante ese tiempo como mucho. Cada
+ * <code>dao.email.filter.reload.ms</code> milisegundos se reconstruye entero
+ * para ajustar su tamaño y recoger lo que no se ve por el id: logins
+ * cambiados y filas confirmadas mucho después de reservar su id.</p>
+ *
+ * <p>Hasta que termina la primera carga, o si está desactivado con
+ * <code>dao.email.filter.expected=0</code>, el filtro responde que cualquier
+ * email puede existir, así que nunca rechaza a un usuario real.</p>
+ *
+ * @author Omar
+ */
+public class EmailFilter {
+
+    /**
+     * Logger utilizado para registrar la actividad de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EmailFilter.class.getName());
+
+    /**
+     * Consulta SQL para contar los logins y dimensionar el filtro.
+     */
+    private static final String COUNT_LOGINS = "SELECT count(*) FROM public.res_users";
+
+    /**
+     * Consulta SQL para leer todos los logins.
+     */
+    private static final String SELECT_LOGINS = "SELECT id, login FROM public.res_users";
+
+    /**
+     * Consulta SQL para leer los logins a partir de un id.
+     */
+    private static final String SELECT_NEW_LOGINS = "SELECT id, login FROM public.res_users WHERE id > ?";
+
+    /**
+     * Filas que el driver trae en cada viaje al leer los logins, para no
+     * cargarlos todos en memoria a la vez.
+     */
+    private static final int FETCH_SIZE = 10000;
+
+    /**
+     * Ids que se vuelven a leer en cada actualización, por las filas que se
+     * confirman después de otras con un id mayor.
+     */
+    private static final long REFRESH_OVERLAP = 1000;
+
+    private final long expected;
+    private final double falsePositiveRate;
+    private final long reloadMs;
+    private final long refreshMs;
+
+    /**
+     * Mayor id leído; solo lo usa el hilo del filtro.
+     */
+    private long lastId;
+
+    /**
+     * Filtro en uso, o null hasta la primera carga.
+     */
+    private volatile EmailBloomFilter current;
+
+    /**
+     * Filtro que se está reconstruyendo, o null.
+     */
+    private volatile EmailBloomFilter next;
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Crea el filtro con la configuración de <code>dao.email.filter.*</code>.
+     *
+     * @param config La configuración del servidor.
+     */
+    public EmailFilter(ResourceBundle config) {
+        this.expected = Long.parseLong(config.getString("dao.email.filter.expected"));
+        this.falsePositiveRate = Double.parseDouble(config.getString("dao.email.filter.fpp"));
+        this.reloadMs = Long.parseLong(config.getString("dao.email.filter.reload.ms"));
+        this.refreshMs = Long.parseLong(config.getString("dao.email.filter.refresh.ms"));
+    }
+
+    /**
+     * Programa la primera carga y las reconstrucciones en un hilo daemon.
+     */
+    public void start() {
+        if (expected <= 0) {
+            return;
+        }
+        ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "email-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reloadMs > 0) {
+            loader.scheduleWithFixedDelay(this::reload, 0, reloadMs, TimeUnit.MILLISECONDS);
+        } else {
+            loader.execute(this::reload);
+        }
+        if (refreshMs > 0) {
+            loader.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        } else if (reloadMs <= 0) {
+            loader.shutdown();
+        }
+    }
+
+    /**
+     * Indica si un email puede estar registrado. Cuenta las veces que la
+     * respuesta es no.
+     *
+     * @param email El email.
+     * @return false solo si el filtro está cargado y el email seguro que no
+     * está registrado.
+     */
+    public boolean mightExist(String email) {
+        EmailBloomFilter filter = current;
+        if (filter == null || email == null || filter.mightContain(email)) {
+            return true;
+        }
+        skipped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return true si el filtro ya está cargado.
+     */
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Añade un email recién registrado.
+     *
+     * @param email El email.
+     */
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+        EmailBloomFilter filter = current;
+        if (filter != null) {
+            filter.add(email);
+        }
+        filter = next;
+        if (filter != null) {
+            filter.add(email);
+        }
+    }
+
+    /**
+     * @return Número de consultas evitadas porque el email no existía.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Construye un filtro nuevo con los logins de la base de datos y lo pone
+     * en uso. Si falla, se mantiene el anterior.
+     */
+    void reload() {
+        DBPool pool;
+        Connection connection;
+        try {
+            pool = DBPool.getInstance();
+            // Leer todos los logins puede tardar más que pool.leak.reclaim.ms
+            connection = pool.getLongRunningConnection();
+        } catch (ConnectionException e) {
+            LOGGER.log(Level.WARNING, "No se pudo cargar el filtro de emails", e);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long count;
+            try (PreparedStatement stmt = connection.prepareStatement(COUNT_LOGINS);
+                    ResultSet rs = stmt.executeQuery()) {
+                count = rs.next() ? rs.getLong(1) : 0;
+            }
+            // Espacio para crecer hasta la siguiente reconstrucción
+            EmailBloomFilter filter = new EmailBloomFilter(Math.max(expected, count * 2), falsePositiveRate);
+            next = filter;
+            boolean autoCommit = connection.getAutoCommit();
+            // El driver solo lee por tramos dentro de una transacción
+            connection.setAutoCommit(false);
+            long loaded = 0;
+            long maxId = 0;
+            try (PreparedStatement stmt = connection.prepareStatement(SELECT_LOGINS)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        maxId = Math.max(maxId, rs.getLong(1));
+                        String login = rs.getString(2);
+                        if (login != null) {
+                            filter.add(login);
+                            loaded++;
+                        }
+                    }
+                }
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            lastId = maxId;
+            current = filter;
+            LOGGER.info(String.format("Filtro de emails cargado: %d logins, %d bits, %d hashes, %d ms",
+                    loaded, filter.getBitCount(), filter.getHashCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (SQLException | RuntimeException e) {
+            // Una excepción no capturada cancelaría las siguientes recargas
+            LOGGER.log(Level.WARNING, "No se pudo cargar el filtro de emails", e);
+        } finally {
+            next = null;
+            pool.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Añade al filtro en uso los logins creados desde la última lectura. Si
+     * falla, se intenta de nuevo en la siguiente.
+     */
+    void refresh() {
+        EmailBloomFilter filter = current;
+        if (filter == null) {
+            return;
+        }
+        DBPool pool;
+        Connection connection;
+        try {
+            pool = DBPool.getInstance();
+            connection = pool.getConnection();
+        } catch (ConnectionException e) {
+            LOGGER.log(Level.FINE, "No se pudo actualizar el filtro de emails", e);
+            return;
+        }
+        try {
+            long maxId = lastId;
+            PreparedStatement stmt = pool.prepareStatement(connection, SELECT_NEW_LOGINS);
+            stmt.setLong(1, Math.max(0, lastId - REFRESH_OVERLAP));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    maxId = Math.max(maxId, rs.getLong(1));
+                    String login = rs.getString(2);
+                    if (login != null) {
+                        filter.add(login);
+                    }
+                }
+            }
+            lastId = maxId;
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo actualizar el filtro de emails", e);
+        } finally {
+            pool.releaseConnection(connection);
+        }
+    }
+}
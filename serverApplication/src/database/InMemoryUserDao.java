@@ -0,0 +1,131 @@
+package database;
+
+import ISignable.Signable;
+import Model.User;
+import exception.ConnectionException;
+import exception.IncorrectCredentialsException;
+import exception.UserAlreadyExistsException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Implementación de {@link Signable} que guarda los usuarios en memoria, para
+ * hacer pruebas de carga del servidor sin PostgreSQL.
+ *
+ * <p>Se activa con <code>dao.backend=memory</code>. Cada operación ocupa uno
+ * de los <code>max.connections</code> permisos, como si tomara una conexión del
+ * {@link DBPool}, y espera <code>dao.memory.latency.ms</code> milisegundos para
+ * simular el viaje a la base de datos. Las contraseñas se guardan con el hash
+ * de {@link PasswordHasher}, igual que en {@link UserDao}, para que las
+ * pruebas de carga incluyan su coste. Los usuarios se pierden al parar el
+ * servidor.</p>
+ *
+ * @author Omar
+ */
+public class InMemoryUserDao implements Signable {
+
+    /**
+     * Logger utilizado para registrar la actividad de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(InMemoryUserDao.class.getName());
+
+    /**
+     * Usuarios registrados por email.
+     */
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+
+    /**
+     * Limita las operaciones simultáneas igual que el tamaño del pool.
+     */
+    private final Semaphore connections;
+
+    /**
+     * Latencia simulada de cada operación en milisegundos.
+     */
+    private final long latencyMs;
+
+    /**
+     * Calcula y comprueba los hashes de las contraseñas.
+     */
+    private final PasswordHasher passwordHasher = PasswordHasher.getInstance();
+
+    /**
+     * Crea el DAO con la configuración de <code>config.config</code>.
+     */
+    public InMemoryUserDao() {
+        ResourceBundle config = ResourceBundle.getBundle("config.config");
+        this.connections = new Semaphore(Integer.parseInt(config.getString("max.connections")), true);
+        this.latencyMs = Long.parseLong(config.getString("dao.memory.latency.ms"));
+        LOGGER.warning("Usando la base de datos en memoria: los usuarios no se guardan en PostgreSQL.");
+    }
+
+    /**
+     * Inicia sesión con un usuario guardado en memoria.
+     *
+     * @param user El usuario con el email y la contraseña.
+     * @return El usuario con sus datos, o null si las credenciales son
+     * incorrectas.
+     * @throws IncorrectCredentialsException Si el usuario está inactivo.
+     * @throws ConnectionException Si hay demasiados hashes pendientes.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    @Override
+    public User signIn(User user) throws IncorrectCredentialsException, ConnectionException, InterruptedException {
+        simulateRoundTrip();
+        User stored = users.get(user.getEmail());
+        if (stored == null) {
+            return null;
+        }
+        if (!stored.isActivo()) {
+            throw new IncorrectCredentialsException("El usuario no está activo.");
+        }
+        if (!passwordHasher.verify(user.getPassword(), stored.getPassword())) {
+            return null;
+        }
+        user.setName(stored.getName());
+        user.setActivo(true);
+        user.setCompanyID(stored.getCompanyID());
+        user.setCity(stored.getCity());
+        user.setStreet(stored.getStreet());
+        user.setZip(stored.getZip());
+        return user;
+    }
+
+    /**
+     * Registra un usuario en memoria.
+     *
+     * @param user El usuario a registrar.
+     * @return El usuario registrado.
+     * @throws UserAlreadyExistsException Si el email ya está registrado.
+     * @throws ConnectionException Si hay demasiados hashes pendientes.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    @Override
+    public User signUp(User user) throws UserAlreadyExistsException, ConnectionException, InterruptedException {
+        String hash = passwordHasher.hash(user.getPassword());
+        simulateRoundTrip();
+        User copy = new User(user.getEmail(), hash, user.getName(), user.isActivo(),
+                user.getCompanyID(), user.getStreet(), user.getCity(), user.getZip());
+        if (users.putIfAbsent(user.getEmail(), copy) != null) {
+            throw new UserAlreadyExistsException("Email already exist.");
+        }
+        return user;
+    }
+
+    /**
+     * Ocupa un permiso durante la latencia configurada.
+     */
+    private void simulateRoundTrip() throws InterruptedException {
+        connections.acquire();
+        try {
+            if (latencyMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            }
+        } finally {
+            connections.release();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package database;
+
+import exception.ConnectionException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Calcula y comprueba los hashes de las contraseñas de 'res_users'.
+ *
+ * <p>Los hashes son PBKDF2 con HMAC-SHA512 y se guardan en el formato de
+ * passlib que usa Odoo, <code>$pbkdf2-sha512$iteraciones$sal$hash</code>, así
+ * que Odoo puede comprobar las contraseñas que registra el servidor y al
+ * revés. El coste se ajusta con <code>dao.password.hash.iterations</code>:
+ * cada iteración más cuesta lo mismo al servidor que a quien intente adivinar
+ * las contraseñas a partir de una copia de la tabla.</p>
+ *
+ * <p>El cálculo se hace en un pool propio de
+ * <code>dao.password.hash.threads</code> hilos, uno por núcleo si es 0, con
+ * una cola de <code>dao.password.hash.queue.size</code> peticiones. Así los
+ * hilos que atienden sockets y conexiones JDBC no compiten por la CPU con más
+ * hashes de los que caben en los núcleos, y si llegan más inicios de sesión de
+ * los que se pueden calcular se rechazan en lugar de acumularse.</p>
+ *
+ * <p>Las contraseñas guardadas en claro, de antes de usar hashes, se siguen
+ * aceptando; {@link #needsUpgrade(String)} indica cuándo conviene sustituirlas
+ * por un hash. Todas las comparaciones tardan lo mismo acierten o no.</p>
+ *
+ * @author Alder
+ */
+public class PasswordHasher {
+
+    /**
+     * Prefijo de los hashes en el formato de passlib.
+     */
+    private static final String PREFIX = "$pbkdf2-sha512$";
+
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 64;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Instancia compartida; se crea en el primer uso.
+     */
+    private static class InstanceHolder {
+        private static final PasswordHasher instance = newInstance();
+    }
+
+    /**
+     * Crea el calculador con su pool de hilos.
+     *
+     * @param iterations Iteraciones de PBKDF2 de los hashes nuevos.
+     * @param threads Hilos del pool; 0 para uno por núcleo.
+     * @param queueSize Cálculos que pueden esperar a un hilo libre.
+     */
+    public PasswordHasher(int iterations, int threads, int queueSize) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("dao.password.hash.iterations debe ser mayor que 0");
+        }
+        this.iterations = iterations;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @return La instancia configurada con <code>dao.password.*</code>.
+     */
+    public static PasswordHasher getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    private static PasswordHasher newInstance() {
+        ResourceBundle config = ResourceBundle.getBundle("config.config");
+        return new PasswordHasher(Integer.parseInt(config.getString("dao.password.hash.iterations")),
+                Integer.parseInt(config.getString("dao.password.hash.threads")),
+                Integer.parseInt(config.getString("dao.password.hash.queue.size")));
+    }
+
+    /**
+     * @return Las iteraciones de los hashes nuevos.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Calcula el hash de una contraseña en el pool y espera el resultado.
+     *
+     * @param password La contraseña en claro.
+     * @return El hash en el formato de passlib, o null si la contraseña es null.
+     * @throws ConnectionException Si hay demasiados cálculos pendientes.
+     */
+    public String hash(String password) throws ConnectionException {
+        return password == null ? null : await(hashAsync(password));
+    }
+
+    /**
+     * Calcula los hashes de varias contraseñas en paralelo.
+     *
+     * @param passwords Las contraseñas en claro.
+     * @return Los hashes en el mismo orden; null para las contraseñas null.
+     * @throws ConnectionException Si hay demasiados cálculos pendientes.
+     */
+    public List<String> hashAll(List<String> passwords) throws ConnectionException {
+        List<CompletableFuture<String>> futures = new ArrayList<>(passwords.size());
+        for (String password : passwords) {
+            futures.add(password == null ? CompletableFuture.completedFuture(null) : hashAsync(password));
+        }
+        List<String> hashes = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            hashes.add(await(future));
+        }
+        return hashes;
+    }
+
+    /**
+     * Calcula el hash de una contraseña en el pool.
+     *
+     * @param password La contraseña en claro.
+     * @return Un futuro con el hash, que falla con {@link ConnectionException}
+     * si hay demasiados cálculos pendientes.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> encode(password, newSalt(), iterations));
+    }
+
+    /**
+     * Comprueba una contraseña contra la guardada. Si la guardada es un hash,
+     * el cálculo se hace en el pool; si está en claro, se compara en el hilo
+     * que llama.
+     *
+     * @param password La contraseña recibida.
+     * @param stored La contraseña guardada, con hash o en claro.
+     * @return true si coinciden.
+     * @throws ConnectionException Si hay demasiados cálculos pendientes.
+     */
+    public boolean verify(String password, String stored) throws ConnectionException {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return await(submit(() -> matches(password, stored)));
+    }
+
+    /**
+     * Indica si una contraseña guardada debería calcularse de nuevo: porque
+     * está en claro o porque su hash tiene menos iteraciones que las
+     * configuradas.
+     *
+     * @param stored La contraseña guardada.
+     * @return true si conviene sustituirla.
+     */
+    public boolean needsUpgrade(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 5 || Integer.parseInt(parts[2]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param stored La contraseña guardada.
+     * @return true si es un hash de esta clase y no una contraseña en claro.
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Calcula el hash de una contraseña en el hilo que llama.
+     *
+     * @param password La contraseña en claro.
+     * @param salt La sal.
+     * @param iterations Las iteraciones.
+     * @return El hash en el formato de passlib.
+     */
+    static String encode(String password, byte[] salt, int iterations) {
+        return PREFIX + iterations + "$" + abase64(salt) + "$" + abase64(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * Comprueba una contraseña contra un hash en el hilo que llama. Un hash
+     * mal formado no coincide con ninguna contraseña.
+     *
+     * @param password La contraseña recibida.
+     * @param stored El hash guardado.
+     * @return true si coinciden.
+     */
+    static boolean matches(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 5) {
+            return false;
+        }
+        try {
+            int rounds = Integer.parseInt(parts[2]);
+            byte[] salt = fromAbase64(parts[3]);
+            byte[] expected = fromAbase64(parts[4]);
+            // Un hash recortado sería un prefijo del correcto: se exige la longitud completa
+            if (rounds <= 0 || expected.length != HASH_BYTES) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, rounds));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Todas las JVM desde Java 8 incluyen PBKDF2WithHmacSHA512
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] newSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Base64 adaptado de passlib: sin relleno y con '.' en lugar de '+'.
+     */
+    private static String abase64(byte[] bytes) {
+        return Base64.getEncoder().withoutPadding().encodeToString(bytes).replace('+', '.');
+    }
+
+    private static byte[] fromAbase64(String text) {
+        return Base64.getDecoder().decode(text.replace('.', '+'));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            result.completeExceptionally(new ConnectionException("Demasiadas operaciones pendientes, inténtelo más tarde."));
+            return result;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws ConnectionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Cálculo de la contraseña interrumpido.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConnectionException) {
+                throw (ConnectionException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
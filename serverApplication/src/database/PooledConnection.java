@@ -0,0 +1,225 @@
+package database;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bookkeeping that {@link DBPool} keeps for each physical connection it owns.
+ * Holds the creation time used for the maximum lifetime, the time of the
+ * last borrow or return used for idle eviction, the time of the last
+ * successful validation used to skip revalidating, and the
+ * {@link StatementCache} that lives as long as the connection.
+ *
+ * <p>While borrowed it also remembers when the borrow started and, when the
+ * pool tracks leaks, the borrowing thread, its stack and the method outside
+ * the pool that asked for the connection.</p>
+ * @author Adrian y Omar
+ */
+class PooledConnection {
+
+    /** The physical database connection. */
+    private final Connection connection;
+
+    /** Time in milliseconds at which the connection was opened. */
+    private final long createdAt;
+
+    /** Time in milliseconds of the last borrow or return. */
+    private volatile long lastUsedAt;
+
+    /** Time in milliseconds of the last successful validation. */
+    private volatile long lastValidatedAt;
+
+    /** Time in nanoseconds at which the current borrow started. */
+    private volatile long borrowedAt;
+
+    /** Stack of the current borrow, or null when leaks are not tracked. */
+    private volatile Throwable borrowTrace;
+
+    /** Class and method that made the current borrow, or null when leaks are not tracked. */
+    private volatile String caller;
+
+    /** Whether the current borrow is exempt from leak reports and reclaim. */
+    private volatile boolean longRunning;
+
+    /** Set once the current borrow has been reported as a possible leak. */
+    private final AtomicBoolean leakReported = new AtomicBoolean();
+
+    /** Prepared statements reused across borrows of this connection. */
+    private final StatementCache statementCache;
+
+    /**
+     * Wraps a newly opened connection.
+     *
+     * @param connection the physical connection.
+     * @param statementCacheSize the maximum number of cached prepared statements.
+     */
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(statementCacheSize);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    /**
+     * Gets the physical connection.
+     *
+     * @return the wrapped connection.
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the prepared statement cache of this connection.
+     *
+     * @return the statement cache.
+     */
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Gets how long the connection has been open.
+     *
+     * @param now the current time in milliseconds.
+     * @return the age in milliseconds.
+     */
+    long getAge(long now) {
+        return now - createdAt;
+    }
+
+    /**
+     * Gets how long the connection has not been used.
+     *
+     * @param now the current time in milliseconds.
+     * @return the idle time in milliseconds.
+     */
+    long getIdleTime(long now) {
+        return now - lastUsedAt;
+    }
+
+    /**
+     * Gets how long the connection has gone without being used or validated.
+     *
+     * @param now the current time in milliseconds.
+     * @return the time in milliseconds since it was last known to work.
+     */
+    long getUncheckedTime(long now) {
+        return now - Math.max(lastUsedAt, lastValidatedAt);
+    }
+
+    /**
+     * Records that the connection has just been borrowed or returned.
+     */
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that the connection has just passed a validation. Unlike
+     * {@link #touch()} this does not delay idle eviction.
+     */
+    void validated() {
+        lastValidatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that the connection has just been borrowed.
+     *
+     * @param trace whether to capture the borrowing thread and stack.
+     */
+    void borrowed(boolean trace) {
+        borrowed(trace, false);
+    }
+
+    /**
+     * Records that the connection has just been borrowed.
+     *
+     * @param trace whether to capture the borrowing thread and stack.
+     * @param longRunning whether the borrower expects to hold it for longer
+     * than the leak limits.
+     */
+    void borrowed(boolean trace, boolean longRunning) {
+        borrowedAt = System.nanoTime();
+        this.longRunning = longRunning;
+        leakReported.set(false);
+        if (trace) {
+            Throwable borrow = new Throwable("Connection borrowed by thread " + Thread.currentThread().getName());
+            borrowTrace = borrow;
+            caller = findCaller(borrow.getStackTrace());
+        }
+    }
+
+    /**
+     * Gets how long the connection has been borrowed.
+     *
+     * @param now the current time in nanoseconds.
+     * @return the hold time in nanoseconds.
+     */
+    long getHoldTime(long now) {
+        return now - borrowedAt;
+    }
+
+    /**
+     * Tells whether the current borrow was made with
+     * {@link DBPool#getLongRunningConnection()}.
+     *
+     * @return true if the borrow is exempt from leak reports and reclaim.
+     */
+    boolean isLongRunning() {
+        return longRunning;
+    }
+
+    /**
+     * Gets the stack of the current borrow.
+     *
+     * @return the borrow stack, or null when leaks are not tracked.
+     */
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    /**
+     * Gets the method that made the current borrow, such as
+     * {@code database.UserDao.signIn}.
+     *
+     * @return the caller, or null when leaks are not tracked.
+     */
+    String getCaller() {
+        return caller;
+    }
+
+    /**
+     * Marks the current borrow as reported.
+     *
+     * @return true the first time it is called for a borrow.
+     */
+    boolean markLeakReported() {
+        return leakReported.compareAndSet(false, true);
+    }
+
+    /**
+     * Tells whether the current borrow has been reported as a possible leak.
+     *
+     * @return true if it was reported.
+     */
+    boolean isLeakReported() {
+        return leakReported.get();
+    }
+
+    /**
+     * Finds the first frame outside the pool classes.
+     *
+     * @param stack the borrow stack.
+     * @return the class and method name of that frame.
+     */
+    private static String findCaller(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.equals(PooledConnection.class.getName()) && !className.equals(DBPool.class.getName())) {
+                return className + "." + frame.getMethodName();
+            }
+        }
+        return "unknown";
+    }
+}
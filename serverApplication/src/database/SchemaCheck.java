@@ -0,0 +1,121 @@
+package database;
+
+import exception.ConnectionException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Clase que comprueba al arrancar el servidor que existen los índices que
+ * necesitan las consultas de {@link UserDao}.
+ *
+ * <p>El inicio de sesión busca por <code>res_users.login</code> y
+ * <code>res_partner.email</code>. Si alguna de estas columnas no es la primera
+ * de ningún índice válido, se registra el <code>CREATE INDEX</code> recomendado
+ * y, si <code>dao.schema.create.indexes</code> está activado, se crea con
+ * <code>CONCURRENTLY</code> para no bloquear las tablas. Un
+ * <code>CREATE INDEX CONCURRENTLY</code> interrumpido deja un índice inválido
+ * que no cuenta y que se borra antes de volver a crearlo.</p>
+ *
+ * @author Omar
+ */
+public class SchemaCheck {
+
+    /**
+     * Logger utilizado para registrar la actividad de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SchemaCheck.class.getName());
+
+    /**
+     * Consulta SQL que indica si una columna es la primera de algún índice
+     * válido de una tabla del esquema 'public'.
+     */
+    private static final String SELECT_LEADING_INDEX = "SELECT 1 FROM pg_index i "
+                    + "JOIN pg_class t ON t.oid = i.indrelid "
+                    + "JOIN pg_namespace n ON n.oid = t.relnamespace "
+                    + "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = i.indkey[0] "
+                    + "WHERE n.nspname = 'public' AND t.relname = ? AND a.attname = ? AND i.indisvalid";
+
+    /**
+     * Índices que necesitan las consultas de inicio de sesión: tabla, columna y
+     * nombre del índice a crear.
+     */
+    private static final String[][] REQUIRED_INDEXES = {
+        {"res_users", "login", "res_users_login_signin_idx"},
+        {"res_partner", "email", "res_partner_email_signin_idx"}
+    };
+
+    /**
+     * Comprueba los índices usando la configuración de <code>config.config</code>.
+     */
+    public static void run() {
+        boolean create = Boolean.parseBoolean(
+                ResourceBundle.getBundle("config.config").getString("dao.schema.create.indexes"));
+        Connection connection = null;
+        try {
+            connection = DBPool.getInstance().getConnection();
+            checkIndexes(connection, create);
+        } catch (ConnectionException | SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron comprobar los índices de la base de datos", e);
+        } finally {
+            if (connection != null) {
+                try {
+                    DBPool.getInstance().releaseConnection(connection);
+                } catch (ConnectionException e) {
+                    LOGGER.log(Level.WARNING, "Error al devolver la conexión", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Comprueba cada índice necesario y, si falta, lo recomienda o lo crea.
+     *
+     * @param connection Conexión en modo autocommit.
+     * @param create Si es true, crea los índices que falten.
+     * @return El número de índices que faltaban.
+     * @throws SQLException Si falla la consulta al catálogo o la creación.
+     */
+    public static int checkIndexes(Connection connection, boolean create) throws SQLException {
+        int missing = 0;
+        for (String[] index : REQUIRED_INDEXES) {
+            if (hasLeadingIndex(connection, index[0], index[1])) {
+                continue;
+            }
+            missing++;
+            // Si el índice existe con este nombre es inválido: IF NOT EXISTS no lo rehará
+            String drop = "DROP INDEX CONCURRENTLY IF EXISTS public." + index[2];
+            String ddl = "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index[2]
+                    + " ON public." + index[0] + " (" + index[1] + ")";
+            if (create) {
+                LOGGER.info("Creando índice: " + ddl);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(drop);
+                    stmt.execute(ddl);
+                }
+            } else {
+                LOGGER.warning("Falta un índice válido sobre " + index[0] + "." + index[1]
+                        + ". Se recomienda ejecutar: " + drop + "; " + ddl);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Indica si una columna es la primera de algún índice válido de la tabla.
+     */
+    private static boolean hasLeadingIndex(Connection connection, String table, String column) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_LEADING_INDEX)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
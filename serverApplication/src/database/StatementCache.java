@@ -0,0 +1,126 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of prepared statements for one pooled connection, keyed by
+ * SQL text. Statements outlive the borrow that prepared them, so the database
+ * does not have to parse and plan the same query on every request.
+ *
+ * <p>A connection is only used by the thread that borrowed it, so the cache
+ * needs no locking. With a size of 0 nothing is cached: statements are
+ * remembered only until the connection goes back to the pool and are then
+ * closed. An evicted statement may still be in use by the current borrower,
+ * so it is closed on release as well, not when it leaves the cache.</p>
+ * @author Adrian y Omar
+ */
+class StatementCache {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+
+    /** Statements kept across borrows, in access order. */
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /** Statements not kept across borrows (uncached or evicted), closed on release. */
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+
+    /** Maximum number of statements kept. */
+    private final int maxSize;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize the maximum number of cached statements; 0 disables caching.
+     */
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    uncached.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached statement for the SQL text.
+     *
+     * @param sql the SQL text.
+     * @return the cached statement, or null on a miss.
+     */
+    PreparedStatement get(String sql) {
+        return statements.get(sql);
+    }
+
+    /**
+     * Prepares a statement on the connection and caches it, evicting the least
+     * recently used statement if the cache is full.
+     *
+     * @param con the connection that owns the cache.
+     * @param sql the SQL text.
+     * @return the new statement.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    PreparedStatement prepare(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        if (maxSize > 0) {
+            statements.put(sql, ps);
+        } else {
+            uncached.add(ps);
+        }
+        return ps;
+    }
+
+    /**
+     * Closes the statements that were not cached or were evicted during the
+     * borrow. Called when the connection goes back to the pool.
+     */
+    void releaseUncached() {
+        for (PreparedStatement ps : uncached) {
+            closeQuietly(ps);
+        }
+        uncached.clear();
+    }
+
+    /**
+     * Closes every statement. Called before the connection is closed.
+     */
+    void closeAll() {
+        releaseUncached();
+        Iterator<PreparedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Gets the number of cached statements.
+     *
+     * @return the cache size.
+     */
+    int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing cached statement", e);
+        }
+    }
+}
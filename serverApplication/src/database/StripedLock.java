@@ -0,0 +1,73 @@
+package database;
+
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Clase que reparte cerrojos entre claves de texto usando un número fijo de
+ * franjas (stripes).
+ *
+ * <p>Dos operaciones con la misma clave usan siempre el mismo cerrojo, mientras
+ * que operaciones con claves distintas casi nunca compiten entre sí. Así se
+ * evita un cerrojo global sin tener que crear uno por cada clave. Las claves se
+ * comparan sin distinguir mayúsculas, igual que los emails.</p>
+ *
+ * <p>Con cero franjas la clase no bloquea nada.</p>
+ *
+ * @author Omar
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Crea el conjunto de cerrojos.
+     *
+     * @param stripeCount Número de franjas; 0 desactiva el bloqueo.
+     */
+    public StripedLock(int stripeCount) {
+        stripes = new ReentrantLock[Math.max(0, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Obtiene el cerrojo asociado a una clave.
+     *
+     * @param key La clave, por ejemplo el email del usuario.
+     * @return El cerrojo de la franja, o null si el bloqueo está desactivado.
+     */
+    private ReentrantLock stripeFor(String key) {
+        if (stripes.length == 0) {
+            return null;
+        }
+        int hash = key == null ? 0 : key.toLowerCase(Locale.ROOT).hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[(hash & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * Bloquea la franja de una clave.
+     *
+     * @param key La clave a bloquear.
+     */
+    public void lock(String key) {
+        ReentrantLock lock = stripeFor(key);
+        if (lock != null) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Libera la franja de una clave bloqueada con {@link #lock(String)}.
+     *
+     * @param key La clave a liberar.
+     */
+    public void unlock(String key) {
+        ReentrantLock lock = stripeFor(key);
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+}
@@ -2,12 +2,27 @@ package database;
 
 import ISignable.Signable;
 import static Model.TipoMensaje.SERVER_ERROR;
+import Model.SignUpStatus;
 import Model.User;
 import exception.*;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,6 +31,54 @@ import java.util.logging.Logger;
  * sesión y el registro de usuarios en el sistema. Realiza operaciones en las
  * tablas 'res_partner' y 'res_users'.
  *
+ * <p>La clase puede usarse desde muchos hilos a la vez: cada llamada obtiene su
+ * propia conexión del {@link DBPool} y sus propias sentencias, así que el número
+ * de operaciones simultáneas solo lo limita <code>max.connections</code>. El
+ * registro bloquea únicamente la franja del email que se registra, para que dos
+ * registros del mismo email no se crucen.</p>
+ *
+ * <p>Las versiones asíncronas se ejecutan en un pool propio de
+ * <code>dao.async.threads</code> hilos, que no debería superar
+ * <code>max.connections</code>: así las peticiones pendientes esperan en la cola
+ * del pool, acotada por <code>dao.async.queue.size</code>, y no ocupan hilos
+ * bloqueados esperando una conexión.</p>
+ *
+ * <p>El registro por lotes inserta cada bloque de <code>dao.batch.size</code>
+ * usuarios en una única transacción con inserciones JDBC por lotes. Si el
+ * bloque falla, por ejemplo porque otro registro del mismo email se ha cruzado,
+ * sus usuarios se registran uno a uno para obtener el resultado de cada uno.</p>
+ *
+ * <p>Si <code>dao.signin.cache.size</code> es mayor que 0, los inicios de
+ * sesión correctos se guardan en una {@link CredentialCache} durante
+ * <code>dao.signin.cache.ttl.ms</code> milisegundos, y repetir un inicio de
+ * sesión con la misma contraseña no consulta la base de datos. Las escrituras
+ * de este DAO (registro y actualización del hash) y encontrar el usuario
+ * inactivo al iniciar sesión invalidan su entrada. Los cambios hechos fuera del
+ * servidor, desde Odoo o el importador, no se notan hasta que la entrada
+ * caduca: durante <code>dao.signin.cache.ttl.ms</code> una contraseña antigua o
+ * un usuario desactivado pueden seguir iniciando sesión. Por eso la caché está
+ * desactivada por defecto.</p>
+ *
+ * <p>Un {@link EmailFilter} con los logins registrados permite responder sin
+ * consultar la base de datos a los inicios de sesión de emails que no existen,
+ * y saltarse la comprobación de emails ya registrados en los lotes de registro
+ * cuyos emails son todos nuevos. Una cuenta creada fuera del servidor entra en
+ * el filtro antes de <code>dao.email.filter.refresh.ms</code>
+ * milisegundos.</p>
+ *
+ * <p>Con <code>dao.signup.check.duplicates</code> el registro comprueba con
+ * una consulta por índice si el email ya es un login antes de abrir la
+ * transacción, y la inserción en 'res_users' usa <code>ON CONFLICT DO
+ * NOTHING</code> para que un registro cruzado desde otro servidor tampoco
+ * aborte la transacción. Un email repetido lanza
+ * {@link UserAlreadyExistsException} sin haber insertado nada.</p>
+ *
+ * <p>Las contraseñas se guardan con el hash de {@link PasswordHasher} y se
+ * comprueban en su pool de hilos después de devolver la conexión al
+ * {@link DBPool}. Con <code>dao.password.upgrade</code>, un inicio de sesión
+ * correcto con una contraseña guardada en claro, o con menos iteraciones de
+ * las configuradas, la sustituye por un hash nuevo en segundo plano.</p>
+ *
  * @author Omar, Adrian y Alder
  */
 public class UserDao implements Signable {
@@ -37,6 +100,36 @@ public class UserDao implements Signable {
     private static final String INSERT_USER_USERS_TABLE = "INSERT INTO public.res_users (login, password, partner_id, company_id, notification_type) "
                     + "VALUES (?, ?, ?, ?, 'email')";
 
+    /**
+     * Consulta SQL para insertar un registro en 'res_users' que no hace nada si
+     * el login ya existe, en lugar de abortar la transacción.
+     */
+    private static final String INSERT_USER_USERS_IF_ABSENT = INSERT_USER_USERS_TABLE + " ON CONFLICT DO NOTHING";
+
+    /**
+     * Consulta SQL que indica si un login ya existe en 'res_users'.
+     */
+    private static final String SELECT_LOGIN_EXISTS = "SELECT 1 FROM public.res_users WHERE login = ?";
+
+    /**
+     * Consulta SQL para insertar un registro en 'res_partner' con un id ya
+     * reservado, usada por el registro por lotes.
+     */
+    private static final String INSERT_USER_PARTNERS_BATCH = "INSERT INTO public.res_partner (id, name, email, display_name, is_company, company_id, street, city, zip, active) "
+                    + "VALUES (?, ?, ?, ?, FALSE, 1, ?, ?, ?, ?)";
+
+    /**
+     * Consulta SQL para reservar ids de 'res_partner' para un bloque del
+     * registro por lotes.
+     */
+    private static final String SELECT_PARTNER_IDS = "SELECT nextval('public.res_partner_id_seq') FROM generate_series(1, ?)";
+
+    /**
+     * Consulta SQL para obtener cuáles de una lista de emails ya son login en
+     * 'res_users'.
+     */
+    private static final String SELECT_EXISTING_LOGINS = "SELECT login FROM public.res_users WHERE login = ANY(?)";
+
     /**
      * Consulta SQL para obtener un usuario por su login (email) desde la tabla
      * 'res_users'.
@@ -49,6 +142,96 @@ public class UserDao implements Signable {
      */
     private static final String SELECT_RES_PARTNER = "SELECT * FROM public.res_partner WHERE email = ?";
 
+    /**
+     * Consulta SQL que obtiene en un solo viaje las columnas necesarias para el
+     * inicio de sesión, uniendo 'res_users' con su partner en 'res_partner'.
+     */
+    private static final String SELECT_SIGN_IN = "SELECT p.active, p.name, p.city, p.street, p.zip, u.password, u.company_id, u.login "
+                    + "FROM public.res_users u JOIN public.res_partner p ON p.id = u.partner_id "
+                    + "WHERE u.login = ?";
+
+    /**
+     * Consulta SQL para sustituir una contraseña, solo si no ha cambiado desde
+     * que se leyó.
+     */
+    private static final String UPDATE_PASSWORD = "UPDATE public.res_users SET password = ? WHERE login = ? AND password = ?";
+
+    /**
+     * Archivo de configuración de la base de datos.
+     */
+    private static final ResourceBundle config = ResourceBundle.getBundle("config.config");
+
+    /**
+     * Indica si el inicio de sesión usa la consulta unida {@link #SELECT_SIGN_IN}
+     * en lugar de dos consultas separadas.
+     */
+    private static final boolean SIGN_IN_SINGLE_QUERY = Boolean.parseBoolean(config.getString("dao.signin.single.query"));
+
+    /**
+     * Número de usuarios que el registro por lotes inserta en cada transacción.
+     */
+    private static final int BATCH_SIZE = Integer.parseInt(config.getString("dao.batch.size"));
+
+    /**
+     * Indica si los inicios de sesión correctos sustituyen las contraseñas en
+     * claro por su hash.
+     */
+    private static final boolean UPGRADE_PASSWORDS = Boolean.parseBoolean(config.getString("dao.password.upgrade"));
+
+    /**
+     * Indica si el registro comprueba antes de insertar que el email no
+     * existe, en lugar de descubrirlo por la inserción fallida.
+     */
+    private final boolean checkDuplicates;
+
+    /**
+     * Caché de los inicios de sesión correctos.
+     */
+    private final CredentialCache credentialCache = new CredentialCache(
+            Integer.parseInt(config.getString("dao.signin.cache.size")),
+            Long.parseLong(config.getString("dao.signin.cache.ttl.ms")));
+
+    /**
+     * Filtro de los logins registrados.
+     */
+    private final EmailFilter emailFilter = new EmailFilter(config);
+
+    /**
+     * Calcula y comprueba los hashes de las contraseñas.
+     */
+    private final PasswordHasher passwordHasher = PasswordHasher.getInstance();
+
+    /**
+     * Cerrojos por email para el registro. El número de franjas se lee de
+     * <code>dao.signup.lock.stripes</code>; con 0 no se bloquea.
+     */
+    private final StripedLock signUpLocks = new StripedLock(
+            Integer.parseInt(config.getString("dao.signup.lock.stripes")));
+
+    /**
+     * Pool de hilos de las operaciones asíncronas; se crea en el primer uso.
+     */
+    private static class AsyncExecutorHolder {
+        private static final ThreadPoolExecutor executor = newAsyncExecutor();
+    }
+
+    /**
+     * Crea el DAO y empieza a cargar el filtro de emails en segundo plano.
+     */
+    public UserDao() {
+        this(Boolean.parseBoolean(config.getString("dao.signup.check.duplicates")));
+    }
+
+    /**
+     * Crea el DAO eligiendo cómo detecta el registro los emails repetidos.
+     *
+     * @param checkDuplicates true para comprobarlos antes de insertar, false
+     * para descubrirlos por la inserción fallida.
+     */
+    UserDao(boolean checkDuplicates) {
+        this.checkDuplicates = checkDuplicates;
+        emailFilter.start();
+    }
 
     /**
      * Método para realizar el inicio de sesión de un usuario. Verifica si el
@@ -66,7 +249,150 @@ public class UserDao implements Signable {
      * las credenciales son incorrectas.
      */
     @Override
-    public synchronized User signIn(User user) throws Exception {
+    public User signIn(User user) throws Exception {
+        if (credentialCache.lookup(user)) {
+            return user;
+        }
+        String email = user.getEmail();
+        if (!emailFilter.mightExist(email)) {
+            return null;
+        }
+        String password = user.getPassword();
+        User signedIn;
+        try {
+            signedIn = SIGN_IN_SINGLE_QUERY ? signInSingleQuery(user) : signInSeparateQueries(user);
+        } catch (IncorrectCredentialsException e) {
+            // Usuario desactivado
+            credentialCache.invalidate(email);
+            throw e;
+        }
+        if (signedIn == null) {
+            return null;
+        }
+        // La conexión ya está libre mientras se calcula el hash
+        String stored = signedIn.getPassword();
+        if (!passwordHasher.verify(password, stored)) {
+            return null;
+        }
+        signedIn.setPassword(password);
+        if (UPGRADE_PASSWORDS && passwordHasher.needsUpgrade(stored)) {
+            upgradePassword(signedIn.getEmail(), password, stored);
+        }
+        credentialCache.put(email, signedIn);
+        return signedIn;
+    }
+
+    /**
+     * Sustituye en segundo plano una contraseña guardada por su hash. El hash
+     * se calcula en el pool de {@link PasswordHasher} y la actualización se
+     * hace en el pool de hilos de la base de datos; si la contraseña ha
+     * cambiado entretanto, no se toca.
+     *
+     * @param login El login del usuario.
+     * @param password La contraseña en claro, ya comprobada.
+     * @param stored La contraseña guardada.
+     */
+    private void upgradePassword(String login, String password, String stored) {
+        passwordHasher.hashAsync(password).whenComplete((hash, error) -> {
+            if (error != null) {
+                // Se volverá a intentar en el siguiente inicio de sesión
+                LOGGER.log(Level.FINE, "No se pudo calcular el hash de la contraseña", error);
+                return;
+            }
+            try {
+                AsyncExecutorHolder.executor.execute(() -> {
+                    try {
+                        updatePassword(login, hash, stored);
+                    } catch (ConnectionException | SQLException e) {
+                        LOGGER.log(Level.WARNING, "No se pudo actualizar el hash de la contraseña", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.fine("Demasiadas operaciones pendientes para actualizar el hash de la contraseña.");
+            }
+        });
+    }
+
+    private void updatePassword(String login, String hash, String stored) throws ConnectionException, SQLException {
+        DBPool pool = DBPool.getInstance();
+        Connection connection = pool.getConnection();
+        try {
+            PreparedStatement stmt = pool.prepareStatement(connection, UPDATE_PASSWORD);
+            stmt.setString(1, hash);
+            stmt.setString(2, login);
+            stmt.setString(3, stored);
+            stmt.executeUpdate();
+        } finally {
+            credentialCache.invalidate(login);
+            pool.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * @return La caché de inicios de sesión, para consultar sus estadísticas.
+     */
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+
+    /**
+     * @return El filtro de emails, para consultar sus estadísticas.
+     */
+    public EmailFilter getEmailFilter() {
+        return emailFilter;
+    }
+
+    /**
+     * Inicio de sesión con una única consulta que une 'res_users' y
+     * 'res_partner' y solo trae las columnas que se devuelven al cliente.
+     *
+     * @param user El objeto User con el email.
+     * @return El objeto User con los datos de la base de datos y la contraseña
+     * guardada, sin comprobar, o null si el email no existe.
+     * @throws Exception Si ocurre algún error con la base de datos.
+     * @throws IncorrectCredentialsException Si el usuario está inactivo.
+     */
+    private User signInSingleQuery(User user) throws Exception {
+        Connection connection = DBPool.getInstance().getConnection();
+        try {
+            // Sentencia preparada reutilizada de la caché de la conexión
+            PreparedStatement stmt = DBPool.getInstance().prepareStatement(connection, SELECT_SIGN_IN);
+            stmt.setString(1, user.getEmail());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                boolean isActive = rs.getBoolean("active");
+                if (!isActive) {
+                    throw new IncorrectCredentialsException("El usuario no está activo.");
+                }
+                String passwordInDb = rs.getString("password");
+                user.setEmail(rs.getString("login"));
+                user.setName(rs.getString("name"));
+                user.setPassword(passwordInDb);
+                user.setActivo(isActive);
+                user.setCompanyID(rs.getInt("company_id"));
+                user.setCity(rs.getString("city"));
+                user.setStreet(rs.getString("street"));
+                user.setZip(rs.getInt("zip"));
+                return user;
+            }
+        } finally {
+            DBPool.getInstance().releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Inicio de sesión original con una consulta a 'res_partner' y otra a
+     * 'res_users'.
+     *
+     * @param user El objeto User con el email.
+     * @return El objeto User con los datos de la base de datos y la contraseña
+     * guardada, sin comprobar, o null si el email no existe.
+     * @throws Exception Si ocurre algún error con la base de datos.
+     * @throws IncorrectCredentialsException Si el usuario está inactivo.
+     */
+    private User signInSeparateQueries(User user) throws Exception {
         Connection connection = null;
         PreparedStatement partnerStmt = null;
         PreparedStatement userStmt = null;
@@ -81,7 +407,7 @@ public class UserDao implements Signable {
             }
 
             // Consulta para obtener los datos del partner por email
-            partnerStmt = connection.prepareStatement(SELECT_RES_PARTNER);
+            partnerStmt = DBPool.getInstance().prepareStatement(connection, SELECT_RES_PARTNER);
             partnerStmt.setString(1, user.getEmail());
             partnerRs = partnerStmt.executeQuery();
 
@@ -95,29 +421,22 @@ public class UserDao implements Signable {
                 }
 
                 // Consulta en res_users para obtener el usuario por su login (email)
-                userStmt = connection.prepareStatement(SELECT_RES_USERS);
+                userStmt = DBPool.getInstance().prepareStatement(connection, SELECT_RES_USERS);
                 userStmt.setString(1, user.getEmail());
                 userRs = userStmt.executeQuery();
 
                 // Verifica si se encontró el usuario
                 if (userRs.next()) {
-                    String passwordInDb = userRs.getString("password");
-
-                    // Comparamos la contraseña ingresada con la almacenada
-                    if (passwordInDb.equals(user.getPassword())) {
-                        // Login exitoso, retornamos el usuario con los datos de la base de datos
-                        user.setEmail(userRs.getString("login"));
-                        user.setName(partnerRs.getString("name"));
-                        user.setPassword(userRs.getString("password"));
-                        user.setActivo(isActive);
-                        user.setCompanyID(userRs.getInt("company_id"));
-                        user.setCity(partnerRs.getString("city"));
-                        user.setStreet(partnerRs.getString("street"));
-                        user.setZip(partnerRs.getInt("zip"));
-                        return user;
-                    } else {
-                        return null;
-                    }
+                    // La contraseña se comprueba en signIn, con la conexión ya devuelta
+                    user.setEmail(userRs.getString("login"));
+                    user.setName(partnerRs.getString("name"));
+                    user.setPassword(userRs.getString("password"));
+                    user.setActivo(isActive);
+                    user.setCompanyID(userRs.getInt("company_id"));
+                    user.setCity(partnerRs.getString("city"));
+                    user.setStreet(partnerRs.getString("street"));
+                    user.setZip(partnerRs.getInt("zip"));
+                    return user;
                 } else {
                     return null;
                 }
@@ -125,19 +444,13 @@ public class UserDao implements Signable {
                 return null;
             }
         } finally {
-            // Cierra todos los recursos
+            // Cierra los resultados; las sentencias quedan en la caché de la conexión
             if (partnerRs != null) {
                 partnerRs.close();
             }
             if (userRs != null) {
                 userRs.close();
             }
-            if (partnerStmt != null) {
-                partnerStmt.close();
-            }
-            if (userStmt != null) {
-                userStmt.close();
-            }
             if (connection != null) {
                 // connection.close();
                 DBPool.getInstance().releaseConnection(connection);
@@ -159,7 +472,380 @@ public class UserDao implements Signable {
      * en la transacción.
      */
     @Override
-    public synchronized User signUp(User user) throws UserAlreadyExistsException, ConnectionException {
+    public User signUp(User user) throws UserAlreadyExistsException, ConnectionException {
+        // Un email repetido se rechaza sin gastar el cálculo del hash
+        if (checkDuplicates && emailFilter.mightExist(user.getEmail()) && loginExists(user.getEmail())) {
+            throw new UserAlreadyExistsException("Email already exist.");
+        }
+        // El hash se calcula antes de tomar el cerrojo y la conexión
+        return signUp(user, passwordHasher.hash(user.getPassword()));
+    }
+
+    /**
+     * Comprueba por índice si un login ya existe, con una conexión que
+     * devuelve al terminar.
+     *
+     * @param login El email a comprobar.
+     * @return true si ya está registrado; false si no lo está o si la
+     * consulta falla, y entonces la inserción detecta el repetido.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private boolean loginExists(String login) throws ConnectionException {
+        DBPool pool = DBPool.getInstance();
+        Connection conn = pool.getConnection();
+        try {
+            PreparedStatement psExists = pool.prepareStatement(conn, SELECT_LOGIN_EXISTS);
+            psExists.setString(1, login);
+            try (ResultSet rs = psExists.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo comprobar si el email ya existe", e);
+            return false;
+        } finally {
+            pool.releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Registra un usuario cuyo hash de contraseña ya está calculado.
+     *
+     * @param user El usuario a registrar.
+     * @param hash El hash de su contraseña.
+     * @return El usuario registrado, o null si falla la inserción.
+     * @throws UserAlreadyExistsException Si el email ya está registrado.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private User signUp(User user, String hash) throws UserAlreadyExistsException, ConnectionException {
+        signUpLocks.lock(user.getEmail());
+        try {
+            User created = doSignUp(user, hash);
+            if (created != null) {
+                emailFilter.add(user.getEmail());
+            }
+            return created;
+        } finally {
+            credentialCache.invalidate(user.getEmail());
+            signUpLocks.unlock(user.getEmail());
+        }
+    }
+
+    /**
+     * Registra una lista de usuarios en bloques de <code>dao.batch.size</code>,
+     * cada uno en su propia transacción.
+     *
+     * <p>Un email repetido dentro de la lista solo se registra la primera vez.
+     * Si no se puede obtener una conexión, los usuarios pendientes del bloque
+     * actual y los siguientes se marcan como error; los bloques anteriores ya
+     * están confirmados.</p>
+     *
+     * @author Omar
+     * @param users Los usuarios a registrar.
+     * @return El resultado de cada usuario, en el mismo orden que la lista.
+     */
+    @Override
+    public List<SignUpStatus> signUpBatch(List<User> users) {
+        SignUpStatus[] results = new SignUpStatus[users.size()];
+        Set<String> seen = new HashSet<>();
+        for (int start = 0; start < users.size(); start += BATCH_SIZE) {
+            int end = Math.min(users.size(), start + BATCH_SIZE);
+            try {
+                signUpChunk(users, start, end, results, seen);
+            } catch (ConnectionException e) {
+                LOGGER.log(Level.SEVERE, "No se pudo obtener una conexión para el registro por lotes", e);
+                for (int i = start; i < results.length; i++) {
+                    if (results[i] == null) {
+                        results[i] = SignUpStatus.ERROR;
+                    }
+                }
+                break;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Registra un bloque de usuarios en una transacción: descarta los emails ya
+     * registrados, calcula los hashes solo de los nuevos, reserva los ids de
+     * 'res_partner' y hace una inserción por lotes en cada tabla. Si la
+     * transacción falla, registra los usuarios nuevos del bloque uno a uno.
+     *
+     * @param users La lista completa de usuarios.
+     * @param start La posición del primer usuario del bloque.
+     * @param end La posición siguiente al último usuario del bloque.
+     * @param results Los resultados, que se rellenan para el bloque.
+     * @param seen Los emails ya vistos en la lista.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private void signUpChunk(List<User> users, int start, int end, SignUpStatus[] results, Set<String> seen)
+            throws ConnectionException {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            User user = users.get(i);
+            if (user == null || user.getEmail() == null) {
+                results[i] = SignUpStatus.ERROR;
+            } else if (!seen.add(user.getEmail())) {
+                results[i] = SignUpStatus.EMAIL_EXISTS;
+            } else {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Descarta los emails que ya son login antes de calcular ningún hash
+        DBPool pool = DBPool.getInstance();
+        Set<String> existing = findExistingLogins(pool, users, pending);
+        List<Integer> toCreate = new ArrayList<>(pending.size());
+        for (int i : pending) {
+            if (existing.contains(users.get(i).getEmail())) {
+                results[i] = SignUpStatus.EMAIL_EXISTS;
+            } else {
+                toCreate.add(i);
+            }
+        }
+        if (toCreate.isEmpty()) {
+            return;
+        }
+
+        // Los hashes se calculan antes de tomar la conexión para no tenerla ocupada
+        List<String> passwords = new ArrayList<>(toCreate.size());
+        for (int i : toCreate) {
+            passwords.add(users.get(i).getPassword());
+        }
+        List<String> createHashes = passwordHasher.hashAll(passwords);
+        Map<Integer, String> hashes = new HashMap<>();
+        for (int k = 0; k < toCreate.size(); k++) {
+            hashes.put(toCreate.get(k), createHashes.get(k));
+        }
+
+        // Un bloque grande del importador puede tardar más que pool.leak.reclaim.ms
+        Connection conn = pool.getLongRunningConnection();
+        PreparedStatement psPartner = null;
+        PreparedStatement psUser = null;
+        boolean committed = false;
+        try {
+            conn.setAutoCommit(false);
+
+            // Reserva los ids para enlazar 'res_users' sin leerlos tras cada inserción
+            PreparedStatement psIds = pool.prepareStatement(conn, SELECT_PARTNER_IDS);
+            psIds.setInt(1, toCreate.size());
+            int[] partnerIds = new int[toCreate.size()];
+            try (ResultSet rs = psIds.executeQuery()) {
+                for (int k = 0; k < partnerIds.length && rs.next(); k++) {
+                    partnerIds[k] = rs.getInt(1);
+                }
+            }
+
+            psPartner = pool.prepareStatement(conn, INSERT_USER_PARTNERS_BATCH);
+            psUser = pool.prepareStatement(conn, INSERT_USER_USERS_TABLE);
+            for (int k = 0; k < partnerIds.length; k++) {
+                int index = toCreate.get(k);
+                User user = users.get(index);
+                psPartner.setInt(1, partnerIds[k]);
+                psPartner.setString(2, user.getName());
+                psPartner.setString(3, user.getEmail());
+                psPartner.setString(4, user.getName());
+                psPartner.setString(5, user.getStreet());
+                psPartner.setString(6, user.getCity());
+                psPartner.setInt(7, user.getZip());
+                psPartner.setBoolean(8, user.isActivo());
+                psPartner.addBatch();
+
+                psUser.setString(1, user.getEmail());
+                psUser.setString(2, hashes.get(index));
+                psUser.setInt(3, partnerIds[k]);
+                psUser.setInt(4, user.getCompanyID());
+                psUser.addBatch();
+            }
+            psPartner.executeBatch();
+            psUser.executeBatch();
+
+            conn.commit();
+            committed = true;
+            for (int i : toCreate) {
+                results[i] = SignUpStatus.CREATED;
+                credentialCache.invalidate(users.get(i).getEmail());
+                emailFilter.add(users.get(i).getEmail());
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Falló el bloque del registro por lotes, se registra usuario a usuario", e);
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackEx) {
+                LOGGER.log(Level.WARNING, "No se pudo deshacer el bloque", rollbackEx);
+            }
+            // Las sentencias siguen en la caché: no deben conservar filas del lote fallido
+            clearBatchQuietly(psPartner);
+            clearBatchQuietly(psUser);
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "No se pudo restaurar el autocommit", ex);
+            }
+            pool.releaseConnection(conn);
+        }
+
+        if (!committed) {
+            for (int i : toCreate) {
+                results[i] = signUpOne(users.get(i), hashes.get(i));
+            }
+        }
+    }
+
+    /**
+     * Busca qué emails de un bloque ya son login. Solo consulta los que el
+     * filtro no descarta, con una conexión que devuelve al terminar.
+     *
+     * @param pool El pool de conexiones.
+     * @param users La lista completa de usuarios.
+     * @param pending Las posiciones de los usuarios a comprobar.
+     * @return Los emails que ya están registrados; vacío si la consulta falla,
+     * y entonces la inserción del bloque detecta los repetidos.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private Set<String> findExistingLogins(DBPool pool, List<User> users, List<Integer> pending)
+            throws ConnectionException {
+        List<String> candidates = new ArrayList<>();
+        for (int i : pending) {
+            if (emailFilter.mightExist(users.get(i).getEmail())) {
+                candidates.add(users.get(i).getEmail());
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return existing;
+        }
+        Connection conn = pool.getConnection();
+        try {
+            PreparedStatement psExisting = pool.prepareStatement(conn, SELECT_EXISTING_LOGINS);
+            psExisting.setArray(1, conn.createArrayOf("varchar", candidates.toArray()));
+            try (ResultSet rs = psExisting.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron comprobar los emails del bloque", e);
+        } finally {
+            pool.releaseConnection(conn);
+        }
+        return existing;
+    }
+
+    /**
+     * Registra un único usuario de un lote y traduce el resultado.
+     *
+     * @param user El usuario a registrar.
+     * @param hash El hash ya calculado de su contraseña.
+     * @return El resultado del registro; ERROR si falla la inserción.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private SignUpStatus signUpOne(User user, String hash) throws ConnectionException {
+        try {
+            // signUp devuelve null cuando falla el SQL; un email repetido llega como excepción
+            return signUp(user, hash) != null ? SignUpStatus.CREATED : SignUpStatus.ERROR;
+        } catch (UserAlreadyExistsException e) {
+            return SignUpStatus.EMAIL_EXISTS;
+        }
+    }
+
+    private static void clearBatchQuietly(PreparedStatement ps) {
+        if (ps != null) {
+            try {
+                ps.clearBatch();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "No se pudo vaciar el lote", e);
+            }
+        }
+    }
+
+    /**
+     * Inicia sesión en el pool de hilos de la base de datos.
+     *
+     * @param user El objeto User con el email y la contraseña.
+     * @return Un futuro con el mismo resultado que {@link #signIn(User)}, o que
+     * falla con su misma excepción. Falla con {@link ConnectionException} si hay
+     * demasiadas operaciones pendientes.
+     */
+    @Override
+    public CompletableFuture<User> signInAsync(User user) {
+        return submit(() -> signIn(user));
+    }
+
+    /**
+     * Registra un usuario en el pool de hilos de la base de datos.
+     *
+     * @param user El objeto User con los datos del usuario a registrar.
+     * @return Un futuro con el mismo resultado que {@link #signUp(User)}, o que
+     * falla con su misma excepción. Falla con {@link ConnectionException} si hay
+     * demasiadas operaciones pendientes.
+     */
+    @Override
+    public CompletableFuture<User> signUpAsync(User user) {
+        return submit(() -> signUp(user));
+    }
+
+    /**
+     * Ejecuta una operación en el pool de hilos de la base de datos.
+     *
+     * @param operation La operación a ejecutar.
+     * @return Un futuro con su resultado o su excepción.
+     */
+    private static CompletableFuture<User> submit(Operation operation) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        try {
+            AsyncExecutorHolder.executor.execute(() -> {
+                try {
+                    result.complete(operation.run());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Demasiadas operaciones pendientes en la base de datos.");
+            result.completeExceptionally(new ConnectionException("Demasiadas operaciones pendientes, inténtelo más tarde."));
+        }
+        return result;
+    }
+
+    /**
+     * Crea el pool de hilos de las operaciones asíncronas. Los hilos son
+     * daemon para no impedir que el servidor termine.
+     *
+     * @return El pool de hilos.
+     */
+    private static ThreadPoolExecutor newAsyncExecutor() {
+        int threads = Integer.parseInt(config.getString("dao.async.threads"));
+        int queueSize = Integer.parseInt(config.getString("dao.async.queue.size"));
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "db-async-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Operación de la base de datos que devuelve un usuario.
+     */
+    private interface Operation {
+        User run() throws Exception;
+    }
+
+    /**
+     * Realiza el registro una vez obtenido el cerrojo del email.
+     *
+     * @param user El objeto User con los datos del usuario a registrar.
+     * @param hash El hash de su contraseña, que es lo que se guarda.
+     * @return El objeto User registrado, o null si el email ya existe.
+     * @throws UserAlreadyExistsException Si el email ya está registrado.
+     * @throws ConnectionException Si no se puede obtener una conexión.
+     */
+    private User doSignUp(User user, String hash) throws UserAlreadyExistsException, ConnectionException {
         Connection conn = null;
         PreparedStatement psPartner = null;
         PreparedStatement psUser = null;
@@ -172,10 +858,21 @@ public class UserDao implements Signable {
             if (conn == null) {
                 throw new ConnectionException("Server not working");
             }
+
+            // Comprueba el email por índice; si el filtro lo descarta, no hace falta
+            if (checkDuplicates && emailFilter.mightExist(user.getEmail())) {
+                PreparedStatement psExists = DBPool.getInstance().prepareStatement(conn, SELECT_LOGIN_EXISTS);
+                psExists.setString(1, user.getEmail());
+                try (ResultSet existsRs = psExists.executeQuery()) {
+                    if (existsRs.next()) {
+                        throw new UserAlreadyExistsException("Email already exist.");
+                    }
+                }
+            }
             conn.setAutoCommit(false); // Start transaction
 
             // Insert into res_partner
-            psPartner = conn.prepareStatement(INSERT_USER_PARTNERS_TABLE);
+            psPartner = DBPool.getInstance().prepareStatement(conn, INSERT_USER_PARTNERS_TABLE);
             psPartner.setString(1, user.getName());
             psPartner.setString(2, user.getEmail());
             psPartner.setString(3, user.getName()); // Assuming display_name is similar to the name field
@@ -192,12 +889,17 @@ public class UserDao implements Signable {
             }
 
             // Insert into res_users
-            psUser = conn.prepareStatement(INSERT_USER_USERS_TABLE);
+            psUser = DBPool.getInstance().prepareStatement(conn,
+                    checkDuplicates ? INSERT_USER_USERS_IF_ABSENT : INSERT_USER_USERS_TABLE);
             psUser.setString(1, user.getEmail());
-            psUser.setString(2, user.getPassword());
+            psUser.setString(2, hash);
             psUser.setInt(3, partnerId);  // Use the partner ID from res_partner
             psUser.setInt(4, user.getCompanyID());
-            psUser.executeUpdate();
+            if (psUser.executeUpdate() == 0) {
+                // Otro registro del mismo email se ha confirmado entre la comprobación y la inserción
+                conn.rollback();
+                throw new UserAlreadyExistsException("Email already exist.");
+            }
 
             // Commit the transaction
             conn.commit();
@@ -215,23 +917,23 @@ public class UserDao implements Signable {
             e.printStackTrace();
             return null;
         } finally {
-            // Close all resources
+            // Close the result set; statements stay in the connection cache
             try {
                 if (rs != null) {
                     rs.close();
                 }
-                if (psPartner != null) {
-                    psPartner.close();
-                }
-                if (psUser != null) {
-                    psUser.close();
-                }
-                if (conn != null) {
-                    DBPool.getInstance().releaseConnection(conn);
-                }
             } catch (SQLException ex) {
                 ex.printStackTrace();
             }
+            if (conn != null) {
+                try {
+                    // La conexión vuelve al pool en modo autocommit para el siguiente uso
+                    conn.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "No se pudo restaurar el autocommit", ex);
+                }
+                DBPool.getInstance().releaseConnection(conn);
+            }
         }
     }
 }
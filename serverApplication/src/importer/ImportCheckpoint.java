@@ -0,0 +1,116 @@
+package importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Fichero de punto de control de una importación.
+ *
+ * <p>Guarda la última línea del fichero de entrada cuyos registros, y todos los
+ * anteriores, ya están escritos en la base de datos, junto con los contadores
+ * acumulados. Al reanudar se saltan esas líneas. Se escribe en un fichero
+ * temporal que luego sustituye al anterior, así que una interrupción a mitad
+ * de escritura no deja un punto de control corrupto.</p>
+ *
+ * @author Omar
+ */
+class ImportCheckpoint {
+
+    private final Path file;
+    private long line;
+    private long read;
+    private long rejected;
+    private long created;
+    private long existing;
+    private long errors;
+
+    private ImportCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Carga el punto de control, o crea uno vacío si el fichero no existe.
+     *
+     * @param file La ruta del punto de control.
+     * @return El punto de control.
+     * @throws IOException Si el fichero existe pero no se puede leer.
+     */
+    static ImportCheckpoint load(Path file) throws IOException {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+        if (Files.exists(file)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+            }
+            checkpoint.line = Long.parseLong(props.getProperty("line", "0"));
+            checkpoint.read = Long.parseLong(props.getProperty("read", "0"));
+            checkpoint.rejected = Long.parseLong(props.getProperty("rejected", "0"));
+            checkpoint.created = Long.parseLong(props.getProperty("created", "0"));
+            checkpoint.existing = Long.parseLong(props.getProperty("existing", "0"));
+            checkpoint.errors = Long.parseLong(props.getProperty("errors", "0"));
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Guarda el punto de control.
+     *
+     * @param line Última línea terminada.
+     * @param stats Contadores acumulados.
+     * @throws IOException Si no se puede escribir.
+     */
+    void save(long line, ImportStats stats) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("line", Long.toString(line));
+        props.setProperty("read", Long.toString(stats.read.get()));
+        props.setProperty("rejected", Long.toString(stats.rejected.get()));
+        props.setProperty("created", Long.toString(stats.created.get()));
+        props.setProperty("existing", Long.toString(stats.existing.get()));
+        props.setProperty("errors", Long.toString(stats.errors.get()));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "Punto de control de UserImport");
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.line = line;
+    }
+
+    /**
+     * Copia en los contadores los valores guardados.
+     *
+     * @param stats Los contadores de la importación.
+     */
+    void restore(ImportStats stats) {
+        stats.read.set(read);
+        stats.rejected.set(rejected);
+        stats.created.set(created);
+        stats.existing.set(existing);
+        stats.errors.set(errors);
+    }
+
+    /**
+     * Borra el punto de control al terminar la importación sin errores.
+     *
+     * @throws IOException Si no se puede borrar.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * @return Última línea terminada, 0 si no hay ninguna.
+     */
+    long getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,36 @@
+package importer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de una importación, compartidos por el hilo lector y los hilos
+ * escritores.
+ *
+ * @author Omar
+ */
+class ImportStats {
+
+    /** Registros leídos del fichero. */
+    final AtomicLong read = new AtomicLong();
+    /** Registros descartados por la validación. */
+    final AtomicLong rejected = new AtomicLong();
+    /** Usuarios creados. */
+    final AtomicLong created = new AtomicLong();
+    /** Usuarios cuyo email ya existía. */
+    final AtomicLong existing = new AtomicLong();
+    /** Usuarios que no se han podido escribir. */
+    final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @return Registros que ya tienen resultado.
+     */
+    long done() {
+        return rejected.get() + created.get() + existing.get() + errors.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("leídos: %d, rechazados: %d, creados: %d, existentes: %d, errores: %d",
+                read.get(), rejected.get(), created.get(), existing.get(), errors.get());
+    }
+}
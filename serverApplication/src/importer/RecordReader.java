@@ -0,0 +1,318 @@
+package importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lee los registros de un fichero de importación línea a línea, sin cargarlo
+ * en memoria.
+ *
+ * <p>Formatos admitidos:</p>
+ * <ul>
+ *     <li><b>CSV:</b> la primera línea es la cabecera con los nombres de las
+ *     columnas. Los campos pueden ir entre comillas dobles, con "" para una
+ *     comilla; un campo no puede ocupar varias líneas.</li>
+ *     <li><b>JSON por líneas:</b> cada línea es un objeto JSON plano cuyos
+ *     valores son textos, números, booleanos o null.</li>
+ * </ul>
+ * <p>Las líneas en blanco y la marca de orden de bytes inicial se ignoran.
+ * Una línea mal formada no detiene la lectura: se devuelve como un registro
+ * con error.</p>
+ *
+ * @author Omar
+ */
+class RecordReader implements Closeable {
+
+    /**
+     * Formato del fichero.
+     */
+    enum Format {
+        CSV, JSONL;
+
+        /**
+         * Deduce el formato por la extensión del fichero.
+         *
+         * @param file El fichero.
+         * @return JSONL para .jsonl, .ndjson y .json; CSV en otro caso.
+         */
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    /**
+     * Registro leído: su número de línea y sus campos, o el motivo por el que
+     * no se ha podido leer.
+     */
+    static class Record {
+
+        final long line;
+        final Map<String, String> fields;
+        final String error;
+
+        Record(long line, Map<String, String> fields, String error) {
+            this.line = line;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private String[] header;
+    private long lineNumber = 0;
+
+    /**
+     * Abre el fichero; en CSV lee también la cabecera.
+     *
+     * @param file El fichero en UTF-8.
+     * @param format Su formato.
+     * @throws IOException Si no se puede abrir o el CSV no tiene cabecera.
+     */
+    RecordReader(Path file, Format format) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = format;
+        // Los ficheros exportados desde hojas de cálculo suelen empezar con un BOM
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        if (format == Format.CSV) {
+            String line = nextLine();
+            if (line == null) {
+                throw new IOException("El fichero CSV no tiene cabecera");
+            }
+            List<String> names = parseCsvLine(line);
+            header = new String[names.size()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = names.get(i).trim().toLowerCase(Locale.ROOT);
+            }
+        }
+    }
+
+    /**
+     * Lee el siguiente registro.
+     *
+     * @return El registro, o null al final del fichero.
+     * @throws IOException Si falla la lectura.
+     */
+    Record next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        try {
+            return new Record(lineNumber, format == Format.CSV ? csvFields(line) : parseJsonObject(line), null);
+        } catch (IllegalArgumentException e) {
+            return new Record(lineNumber, null, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+        } while (line != null && line.trim().isEmpty());
+        return line;
+    }
+
+    private Map<String, String> csvFields(String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("Se esperaban " + header.length + " columnas y hay " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            fields.put(header[i], values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Separa una línea CSV en campos.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Lee un objeto JSON plano; los valores se guardan como texto.
+     */
+    static Map<String, String> parseJsonObject(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        Map<String, String> fields = new HashMap<>();
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String name = cursor.readString();
+                cursor.expect(':');
+                fields.put(name.toLowerCase(Locale.ROOT), cursor.readValue());
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        cursor.expectEnd();
+        return fields;
+    }
+
+    /**
+     * Recorre el texto de un objeto JSON.
+     */
+    private static class JsonCursor {
+
+        private final String text;
+        private int pos = 0;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("JSON no válido: se esperaba '" + c + "' en la posición " + pos);
+            }
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (pos != text.length()) {
+                throw new IllegalArgumentException("JSON no válido: texto tras el objeto");
+            }
+        }
+
+        String readValue() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("JSON no válido: falta un valor");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("JSON no válido: solo se admiten valores simples");
+            }
+            int start = pos;
+            while (pos < text.length() && ",} \t".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (!literal.matches("true|false|-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                throw new IllegalArgumentException("JSON no válido: valor desconocido " + literal);
+            }
+            return literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("JSON no válido: escape \\u incompleto");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("JSON no válido: escape \\u incorrecto");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                        break;
+                }
+            }
+            throw new IllegalArgumentException("JSON no válido: texto sin cerrar");
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package importer;
+
+import ISignable.Signable;
+import Model.SignUpStatus;
+import Model.User;
+import database.DBPool;
+import database.DaoFactory;
+import exception.ConnectionException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Importa usuarios desde un fichero CSV o JSON por líneas.
+ *
+ * <p>Uso:</p>
+ * <pre>
+ * java importer.UserImport &lt;fichero&gt; [--format csv|jsonl] [--checkpoint ruta] [--writers n]
+ * </pre>
+ *
+ * <p>El hilo principal lee el fichero registro a registro, valida cada uno con
+ * {@link UserValidator} y agrupa los válidos en lotes de
+ * <code>dao.batch.size</code> usuarios. Los lotes pasan a los hilos escritores
+ * por una cola acotada, de modo que la memoria usada no depende del tamaño del
+ * fichero: si la base de datos va más lenta que la lectura, el lector espera.
+ * Cada escritor guarda sus lotes con {@link Signable#signUpBatch(List)}; hay
+ * <code>import.writers</code> escritores como máximo, y siempre queda libre
+ * una conexión del {@link DBPool} para el filtro de emails de UserDao.</p>
+ *
+ * <p>Cada segundo, como mucho, se guarda un {@link ImportCheckpoint} con la
+ * última línea cuyos lotes, y todos los anteriores, ya están escritos sin
+ * errores, junto con los contadores de esos mismos lotes. Si la importación
+ * se interrumpe, al lanzarla de nuevo continúa desde esa línea. El punto de
+ * control no pasa de un lote con algún usuario en error: los lotes
+ * siguientes se escriben igual, pero al reanudar se repiten desde ese lote y
+ * los usuarios que ya se crearon cuentan como existentes. El punto de control
+ * se borra cuando el fichero se termina sin errores.</p>
+ *
+ * <p>Cada <code>import.progress.interval.ms</code> se registra el progreso y
+ * los registros por segundo.</p>
+ *
+ * @author Omar
+ */
+public class UserImport {
+
+    /**
+     * Logger para registrar eventos y mensajes.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UserImport.class.getName());
+
+    /**
+     * Configuración del servidor.
+     */
+    private static final ResourceBundle config = ResourceBundle.getBundle("config.config");
+
+    /**
+     * Intervalo mínimo entre dos escrituras del punto de control.
+     */
+    private static final long CHECKPOINT_INTERVAL_MS = 1000;
+
+    /**
+     * Lote que marca el final de la cola para los escritores.
+     */
+    private static final Batch END = new Batch(-1);
+
+    private final Path file;
+    private final RecordReader.Format format;
+    private final ImportCheckpoint checkpoint;
+    private final int writers;
+    private final int batchSize;
+    private final Signable signable;
+    private final ImportStats stats = new ImportStats();
+    private final BlockingQueue<Batch> queue;
+
+    /**
+     * Contadores de los lotes hasta <code>committedLine</code>; son los que se
+     * guardan en el punto de control.
+     */
+    private final ImportStats committedStats = new ImportStats();
+
+    /**
+     * Lotes terminados fuera de orden, por número de secuencia.
+     */
+    private final TreeMap<Long, Batch> finished = new TreeMap<>();
+
+    /**
+     * Secuencia del siguiente lote que hace avanzar el punto de control.
+     */
+    private long nextSequence = 0;
+
+    /**
+     * Indica si un lote ha tenido errores; el punto de control ya no avanza.
+     */
+    private boolean frozen;
+
+    /**
+     * Última línea con todos sus lotes y los anteriores escritos sin errores.
+     */
+    private volatile long committedLine;
+
+    private long lastCheckpointSave = System.currentTimeMillis();
+
+    /**
+     * Prepara la importación.
+     *
+     * @param file El fichero a importar.
+     * @param format Su formato.
+     * @param checkpoint El punto de control, vacío si se empieza de cero.
+     * @param writers El número de hilos escritores.
+     * @param batchSize El número de usuarios por lote.
+     * @param signable La implementación que guarda los usuarios.
+     */
+    UserImport(Path file, RecordReader.Format format, ImportCheckpoint checkpoint, int writers, int batchSize,
+            Signable signable) {
+        this.file = file;
+        this.format = format;
+        this.checkpoint = checkpoint;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.signable = signable;
+        this.queue = new ArrayBlockingQueue<>(writers * 2);
+        this.committedLine = checkpoint.getLine();
+        checkpoint.restore(stats);
+        checkpoint.restore(committedStats);
+    }
+
+    /**
+     * Punto de entrada de la herramienta.
+     *
+     * @param args El fichero y las opciones.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: java importer.UserImport <fichero> [--format csv|jsonl] "
+                    + "[--checkpoint ruta] [--writers n]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        RecordReader.Format format = RecordReader.Format.of(file);
+        Path checkpointFile = Paths.get(args[0] + ".checkpoint");
+        int writers = Integer.parseInt(config.getString("import.writers"));
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--format":
+                    format = RecordReader.Format.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                    break;
+                case "--checkpoint":
+                    checkpointFile = Paths.get(args[i + 1]);
+                    break;
+                case "--writers":
+                    writers = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Opción desconocida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        int exitCode = 0;
+        try {
+            DBPool pool = DBPool.getInstance();
+            // Una conexión queda para el filtro de emails de UserDao, que la usa al cargarse y al refrescarse
+            writers = Math.max(1, Math.min(writers, pool.getMaxConnections() - 1));
+            UserImport userImport = new UserImport(file, format, ImportCheckpoint.load(checkpointFile), writers,
+                    Integer.parseInt(config.getString("dao.batch.size")), DaoFactory.getSignable());
+            userImport.run(Long.parseLong(config.getString("import.progress.interval.ms")));
+            if (userImport.stats.errors.get() > 0) {
+                exitCode = 1;
+            }
+        } catch (ConnectionException | IOException e) {
+            LOGGER.log(Level.SEVERE, "La importación no ha podido completarse", e);
+            exitCode = 1;
+        } catch (InterruptedException e) {
+            LOGGER.warning("Importación interrumpida");
+            exitCode = 1;
+        } finally {
+            try {
+                DBPool.getInstance().releaseAllConnections();
+            } catch (ConnectionException e) {
+                LOGGER.log(Level.FINE, "No hay pool que cerrar", e);
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Lee el fichero entero y espera a que se escriban todos los lotes.
+     *
+     * @param progressIntervalMs Intervalo entre informes de progreso.
+     * @throws IOException Si no se puede leer el fichero.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    void run(long progressIntervalMs) throws IOException, InterruptedException {
+        if (committedLine > 0) {
+            LOGGER.info("Reanudando " + file + " tras la línea " + committedLine + " (" + stats + ")");
+        }
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "import-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(new ProgressReport(start), progressIntervalMs, progressIntervalMs,
+                TimeUnit.MILLISECONDS);
+        List<Thread> threads = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            Thread t = new Thread(this::write, "import-writer-" + i);
+            threads.add(t);
+            t.start();
+        }
+        try {
+            read();
+        } finally {
+            for (int i = 0; i < writers; i++) {
+                queue.put(END);
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            reporter.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LOGGER.info(String.format("Importación de %s terminada en %.1f s: %s", file, seconds, stats));
+        if (stats.errors.get() == 0) {
+            checkpoint.delete();
+        } else {
+            saveCheckpoint(true);
+        }
+    }
+
+    /**
+     * Lee y valida los registros y los reparte en lotes.
+     */
+    private void read() throws IOException, InterruptedException {
+        long sequence = 0;
+        Batch batch = new Batch(sequence++);
+        try (RecordReader reader = new RecordReader(file, format)) {
+            RecordReader.Record record;
+            while ((record = reader.next()) != null) {
+                if (record.line <= committedLine) {
+                    continue;
+                }
+                batch.read++;
+                batch.lastLine = record.line;
+                String error = record.error != null ? record.error : UserValidator.validate(record.fields);
+                if (error != null) {
+                    batch.rejected++;
+                    LOGGER.warning("Línea " + record.line + " rechazada: " + error);
+                } else {
+                    batch.users.add(UserValidator.toUser(record.fields));
+                }
+                if (batch.users.size() == batchSize) {
+                    queue.put(batch);
+                    batch = new Batch(sequence++);
+                }
+            }
+        }
+        if (batch.read > 0) {
+            queue.put(batch);
+        }
+    }
+
+    /**
+     * Bucle de un hilo escritor.
+     */
+    private void write() {
+        try {
+            Batch batch;
+            while ((batch = queue.take()) != END) {
+                if (!batch.users.isEmpty()) {
+                    try {
+                        for (SignUpStatus status : signable.signUpBatch(batch.users)) {
+                            if (status == SignUpStatus.CREATED) {
+                                batch.created++;
+                            } else if (status == SignUpStatus.EMAIL_EXISTS) {
+                                batch.existing++;
+                            } else {
+                                batch.errors++;
+                            }
+                        }
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Error al escribir el lote que termina en la línea "
+                                + batch.lastLine, e);
+                        batch.created = 0;
+                        batch.existing = 0;
+                        batch.errors = batch.users.size();
+                    }
+                }
+                batch.addTo(stats);
+                finish(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Marca un lote como escrito y avanza el punto de control si ya están
+     * escritos todos los anteriores. Se detiene en el primer lote con errores.
+     */
+    synchronized void finish(Batch batch) {
+        if (frozen) {
+            return;
+        }
+        finished.put(batch.sequence, batch);
+        Batch next;
+        while ((next = finished.remove(nextSequence)) != null) {
+            if (next.errors > 0) {
+                LOGGER.warning("El punto de control se queda en la línea " + committedLine
+                        + ": el lote que termina en la línea " + next.lastLine + " tiene errores");
+                frozen = true;
+                finished.clear();
+                break;
+            }
+            next.addTo(committedStats);
+            committedLine = next.lastLine;
+            nextSequence++;
+        }
+        saveCheckpoint(false);
+    }
+
+    /**
+     * @return Última línea con todos sus lotes y los anteriores escritos sin
+     * errores.
+     */
+    long getCommittedLine() {
+        return committedLine;
+    }
+
+    /**
+     * @return Los contadores de la importación, incluidos los restaurados del
+     * punto de control.
+     */
+    ImportStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Guarda el punto de control si ha pasado el intervalo mínimo o si se
+     * fuerza.
+     */
+    private synchronized void saveCheckpoint(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - lastCheckpointSave < CHECKPOINT_INTERVAL_MS) {
+            return;
+        }
+        lastCheckpointSave = now;
+        try {
+            checkpoint.save(committedLine, committedStats);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se ha podido guardar el punto de control", e);
+        }
+    }
+
+    /**
+     * Usuarios de un tramo consecutivo de líneas, sus registros descartados y
+     * el resultado de escribirlos.
+     */
+    static class Batch {
+
+        final long sequence;
+        final List<User> users = new ArrayList<>();
+        long lastLine;
+        long read;
+        long rejected;
+        long created;
+        long existing;
+        long errors;
+
+        Batch(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void addTo(ImportStats target) {
+            target.read.addAndGet(read);
+            target.rejected.addAndGet(rejected);
+            target.created.addAndGet(created);
+            target.existing.addAndGet(existing);
+            target.errors.addAndGet(errors);
+        }
+    }
+
+    /**
+     * Registra el progreso y el ritmo desde el informe anterior.
+     */
+    private class ProgressReport implements Runnable {
+
+        private final long start;
+        private long lastTime;
+        private long lastDone;
+
+        ProgressReport(long start) {
+            this.start = start;
+            this.lastTime = start;
+            this.lastDone = stats.done();
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            long done = stats.done();
+            double rate = (done - lastDone) / ((now - lastTime) / 1e9);
+            LOGGER.info(String.format("Progreso: %s, línea %d, %.0f registros/s, %.0f s",
+                    stats, committedLine, rate, (now - start) / 1e9));
+            lastTime = now;
+            lastDone = done;
+        }
+    }
+}
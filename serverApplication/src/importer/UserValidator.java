@@ -0,0 +1,77 @@
+package importer;
+
+import Model.User;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Valida los campos de un usuario importado con las mismas reglas que aplica
+ * el formulario de registro del cliente: campos obligatorios, formato de
+ * email, ciudad solo con letras y código postal de cinco dígitos.
+ *
+ * <p>La contraseña solo tiene que existir: las cuentas heredadas conservan la
+ * que tenían aunque no cumpla las reglas actuales del formulario.</p>
+ *
+ * @author Omar
+ */
+class UserValidator {
+
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]+@([a-zA-Z0-9.-]+\\.[a-zA-Z]{2,})$");
+    private static final Pattern CITY = Pattern.compile("[a-zA-Z\\s]+");
+    private static final Pattern ZIP = Pattern.compile("\\d{5}");
+    private static final String[] REQUIRED = {"email", "password", "name", "street", "city", "zip"};
+
+    private UserValidator() {
+    }
+
+    /**
+     * Comprueba los campos de un registro.
+     *
+     * @param fields Los campos del registro por nombre de columna.
+     * @return El motivo del rechazo, o null si el registro es válido.
+     */
+    static String validate(Map<String, String> fields) {
+        for (String name : REQUIRED) {
+            String value = fields.get(name);
+            if (value == null || value.trim().isEmpty()) {
+                return "Campo vacío: " + name;
+            }
+        }
+        if (!EMAIL.matcher(fields.get("email").trim()).matches()) {
+            return "Formato de email inválido: " + fields.get("email");
+        }
+        if (!CITY.matcher(fields.get("city").trim()).matches()) {
+            return "La ciudad solo puede contener letras: " + fields.get("city");
+        }
+        if (!ZIP.matcher(fields.get("zip").trim()).matches()) {
+            return "El código postal debe tener 5 dígitos: " + fields.get("zip");
+        }
+        String companyId = fields.get("company_id");
+        if (companyId != null && !companyId.trim().isEmpty() && !companyId.trim().matches("\\d+")) {
+            return "company_id no es un número: " + companyId;
+        }
+        return null;
+    }
+
+    /**
+     * Crea el usuario de un registro ya validado. Las columnas opcionales
+     * <code>active</code> y <code>company_id</code> valen true y 1 si no
+     * aparecen; <code>active</code> solo es false con "false", "f" o "0".
+     *
+     * @param fields Los campos del registro por nombre de columna.
+     * @return El usuario.
+     */
+    static User toUser(Map<String, String> fields) {
+        String active = fields.get("active");
+        String companyId = fields.get("company_id");
+        return new User(
+                fields.get("email").trim(),
+                fields.get("password"),
+                fields.get("name").trim(),
+                active == null || !active.trim().matches("(?i)false|f|0"),
+                companyId == null || companyId.trim().isEmpty() ? 1 : Integer.parseInt(companyId.trim()),
+                fields.get("street").trim(),
+                fields.get("city").trim(),
+                Integer.parseInt(fields.get("zip").trim()));
+    }
+}
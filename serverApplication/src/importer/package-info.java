@@ -0,0 +1,5 @@
+/**
+ * Paquete con la herramienta de importación masiva de usuarios desde ficheros
+ * CSV o JSON por líneas.
+ */
+package importer;
@@ -0,0 +1,199 @@
+package logging;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import metrics.MetricsRegistry;
+
+/**
+ * {@link Handler} que pasa los registros a otros handlers desde un único hilo
+ * escritor.
+ *
+ * <p>Quien registra solo comprueba el nivel y el filtro y deja el registro en
+ * una {@link RecordRing}; no formatea el mensaje ni espera al cerrojo de los
+ * handlers de destino, que solo usa el hilo escritor. Si la cola está llena el
+ * registro se descarta y se cuenta. Los mensajes con parámetros, como
+ * <code>logger.log(Level.INFO, "Mensaje recibido: {0}", msg)</code>, se
+ * formatean en el hilo escritor, así que los parámetros no deben cambiar
+ * después de registrarlos.</p>
+ *
+ * <p>Para no recorrer la pila de quien registra, la clase de origen es el
+ * nombre del logger, que en el servidor es el de la clase, y no se indica el
+ * método.</p>
+ *
+ * <p>Los descartes se publican en el {@link MetricsRegistry} como
+ * <code>log_records_dropped_total</code>, con <code>reason="full"</code> para
+ * la cola llena y <code>reason="rate"</code> para los de
+ * {@link RateLimitFilter}.</p>
+ *
+ * @author Alder
+ */
+public class AsyncHandler extends Handler {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncHandler.class.getName());
+
+    /**
+     * Tiempo máximo que duerme el escritor sin que nadie le despierte.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Handler[] targets;
+    private final RecordRing ring;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Indica que el escritor va a dormir y hay que despertarle al añadir.
+     */
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    /**
+     * Crea el handler y arranca su hilo escritor.
+     *
+     * @param targets Los handlers que escriben los registros.
+     * @param capacity El número de registros que caben en la cola.
+     */
+    public AsyncHandler(Handler[] targets, int capacity) {
+        this.targets = targets.clone();
+        this.ring = new RecordRing(capacity);
+        setLevel(Level.ALL);
+        writer = new Thread(this::drain, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Sustituye los handlers del logger raíz por un {@link AsyncHandler} que
+     * escribe en ellos, según <code>log.async.enabled</code>,
+     * <code>log.async.buffer.size</code> y
+     * <code>log.rate.limit.per.second</code>.
+     *
+     * @param config La configuración del servidor.
+     */
+    public static void install(ResourceBundle config) {
+        if (!Boolean.parseBoolean(config.getString("log.async.enabled"))) {
+            return;
+        }
+        Logger root = Logger.getLogger("");
+        Handler[] targets = root.getHandlers();
+        AsyncHandler handler = new AsyncHandler(targets, Integer.parseInt(config.getString("log.async.buffer.size")));
+        RateLimitFilter filter = new RateLimitFilter(Integer.parseInt(config.getString("log.rate.limit.per.second")));
+        handler.setFilter(filter);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.counter("log_records_dropped_total", handler::getDropped, "reason", "full");
+        metrics.counter("log_records_dropped_total", filter::getSuppressed, "reason", "rate");
+        for (Handler target : targets) {
+            root.removeHandler(target);
+        }
+        root.addHandler(handler);
+        LOGGER.log(Level.INFO, "Registro asíncrono activado con una cola de {0} registros", handler.ring.capacity());
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // Fija la clase de origen para que el escritor no la busque en su propia pila
+        record.setSourceClassName(record.getLoggerName());
+        if (!ring.offer(record)) {
+            dropped.increment();
+            return;
+        }
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: pasa los registros a los destinos y vacía sus
+     * buffers cuando la cola se queda vacía.
+     */
+    private void drain() {
+        while (true) {
+            // Lo que se añadió antes de cerrar se escribe en esta vuelta
+            boolean stopping = closed;
+            boolean wrote = false;
+            LogRecord record;
+            while ((record = ring.poll()) != null) {
+                write(record);
+                wrote = true;
+            }
+            if (wrote) {
+                flushTargets();
+            }
+            if (stopping) {
+                return;
+            }
+            sleeping = true;
+            // Comprueba otra vez para no dormir con un registro recién añadido
+            if (ring.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private void write(LogRecord record) {
+        for (Handler target : targets) {
+            try {
+                target.publish(record);
+            } catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    private void flushTargets() {
+        for (Handler target : targets) {
+            try {
+                target.flush();
+            } catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * No espera al escritor: los registros ya encolados se escriben en cuanto
+     * los saca de la cola.
+     */
+    @Override
+    public void flush() {
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Deja de aceptar registros, espera a que el escritor escriba los
+     * pendientes y cierra los destinos.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler target : targets) {
+            target.close();
+        }
+    }
+
+    /**
+     * @return Los registros descartados porque la cola estaba llena.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,85 @@
+package logging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Filter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Filtro que deja pasar como mucho un número de registros por segundo de cada
+ * logger. Los avisos y los errores, de nivel {@link Level#WARNING} o superior,
+ * pasan siempre.
+ *
+ * <p>Sirve para los mensajes que se escriben en cada petición: con carga, el
+ * registro muestra los primeros de cada segundo y el resto se cuentan como
+ * suprimidos. Cada logger guarda el segundo actual y los registros que lleva
+ * en un único {@link AtomicLong}, así que el filtro no usa cerrojos.</p>
+ *
+ * @author Alder
+ */
+public class RateLimitFilter implements Filter {
+
+    /**
+     * Bits del estado que guardan la cuenta; el resto guardan el segundo.
+     */
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int perSecond;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> windows = new ConcurrentHashMap<>();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Crea un filtro.
+     *
+     * @param perSecond Registros por segundo de cada logger; 0 no limita.
+     */
+    public RateLimitFilter(int perSecond) {
+        this(perSecond, System::nanoTime);
+    }
+
+    RateLimitFilter(int perSecond, LongSupplier clock) {
+        this.perSecond = (int) Math.min(perSecond, COUNT_MASK);
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        if (perSecond <= 0 || record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            return true;
+        }
+        String name = String.valueOf(record.getLoggerName());
+        AtomicLong window = windows.get(name);
+        if (window == null) {
+            window = windows.computeIfAbsent(name, n -> new AtomicLong());
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(clock.getAsLong());
+        while (true) {
+            long state = window.get();
+            long next;
+            if (state >>> COUNT_BITS != second) {
+                next = second << COUNT_BITS | 1;
+            } else if ((state & COUNT_MASK) < perSecond) {
+                next = state + 1;
+            } else {
+                suppressed.increment();
+                return false;
+            }
+            if (window.compareAndSet(state, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Los registros que no han pasado el filtro.
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+}
@@ -0,0 +1,108 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.LogRecord;
+
+/**
+ * Cola circular acotada de registros, con muchos productores y un solo
+ * consumidor, sin cerrojos.
+ *
+ * <p>Cada posición lleva un número de secuencia que dice si está libre para la
+ * vuelta actual o ya tiene un registro publicado. Un productor reserva una
+ * posición con un CAS sobre la cola y la publica al escribir su secuencia; si
+ * la cola está llena, {@link #offer(LogRecord)} devuelve false en vez de
+ * esperar. Solo el hilo escritor llama a {@link #poll()}.</p>
+ *
+ * @author Alder
+ */
+final class RecordRing {
+
+    private final AtomicReferenceArray<LogRecord> records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Siguiente posición a leer; solo la usa el consumidor.
+     */
+    private long head;
+
+    /**
+     * Crea una cola vacía.
+     *
+     * @param capacity La capacidad mínima; se redondea a una potencia de dos.
+     */
+    RecordRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        records = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return El número de posiciones.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Añade un registro si hay sitio.
+     *
+     * @param record El registro.
+     * @return false si la cola está llena.
+     */
+    boolean offer(LogRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    records.lazySet(index, record);
+                    // Publica el registro para el consumidor
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // El consumidor todavía no ha liberado la posición de la vuelta anterior
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Solo puede llamarlo el consumidor.
+     *
+     * @return true si no hay registros por leer.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Saca el registro más antiguo. Solo puede llamarlo el consumidor.
+     *
+     * @return El registro, o null si la cola está vacía.
+     */
+    LogRecord poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        LogRecord record = records.get(index);
+        records.lazySet(index, null);
+        // Libera la posición para la siguiente vuelta
+        sequences.set(index, head + mask + 1);
+        head++;
+        return record;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Paquete con el registro asíncrono del servidor: un {@link java.util.logging.Handler}
+ * que no bloquea a quien registra y un filtro que limita los mensajes por
+ * logger.
+ */
+package logging;
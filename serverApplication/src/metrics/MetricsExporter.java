@@ -0,0 +1,118 @@
+package metrics;
+
+import Model.TipoMensaje;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publica el {@link MetricsRegistry} del servidor.
+ *
+ * <p>Con <code>metrics.http.port</code> mayor que 0 abre un servidor HTTP en
+ * <code>metrics.http.host</code> que responde en <code>/metrics</code> con el
+ * texto de {@link MetricsRegistry#scrape()}; por defecto solo escucha en la
+ * máquina local. Con <code>metrics.jmx.enabled</code> registra un
+ * {@link MetricsMXBean} en el servidor de MBeans de la plataforma, visible
+ * desde JConsole o VisualVM.</p>
+ *
+ * @author Alder
+ */
+public class MetricsExporter implements MetricsMXBean {
+
+    /**
+     * Logger para registrar eventos y mensajes.
+     */
+    private static final Logger LOGGER = Logger.getLogger(MetricsExporter.class.getName());
+
+    /**
+     * Nombre del MBean.
+     */
+    public static final String OBJECT_NAME = "serverapplication:type=Metrics";
+
+    private final MetricsRegistry registry;
+
+    MetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Arranca el endpoint HTTP y el MBean según la configuración. Un fallo
+     * se registra y no impide arrancar el servidor.
+     *
+     * @param config La configuración del servidor.
+     */
+    public static void start(ResourceBundle config) {
+        MetricsExporter exporter = new MetricsExporter(MetricsRegistry.getInstance());
+        if (Boolean.parseBoolean(config.getString("metrics.jmx.enabled"))) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(exporter, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "No se pudo registrar el MBean de métricas", e);
+            }
+        }
+        int port = Integer.parseInt(config.getString("metrics.http.port"));
+        if (port > 0) {
+            try {
+                exporter.startHttp(config.getString("metrics.http.host"), port);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo abrir el endpoint de métricas", e);
+            }
+        }
+    }
+
+    /**
+     * Abre el endpoint HTTP, atendido por un único hilo daemon.
+     */
+    private void startHttp(String host, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        LOGGER.info("Métricas en http://" + host + ":" + port + "/metrics");
+    }
+
+    @Override
+    public String getText() {
+        return registry.scrape();
+    }
+
+    @Override
+    public Map<String, Double> getSamples() {
+        return registry.snapshot();
+    }
+
+    @Override
+    public double getSignInP99Millis() {
+        return RequestMetrics.timer(RequestMetrics.Phase.TOTAL, TipoMensaje.SIGN_IN_REQUEST, TipoMensaje.OK_RESPONSE)
+                .getWindow().getValueAtPercentile(99) / 1000.0;
+    }
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Métricas del servidor publicadas por JMX con el nombre
+ * <code>serverapplication:type=Metrics</code>.
+ *
+ * @author Alder
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return Todas las métricas en el formato de texto de Prometheus.
+     */
+    String getText();
+
+    /**
+     * @return El valor de cada muestra, con el mismo nombre que en
+     * {@link #getText()}.
+     */
+    Map<String, Double> getSamples();
+
+    /**
+     * @return El percentil 99 en milisegundos de los inicios de sesión
+     * correctos en la última ventana.
+     */
+    double getSignInP99Millis();
+}
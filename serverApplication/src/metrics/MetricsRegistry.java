@@ -0,0 +1,282 @@
+package metrics;
+
+import Utils.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de las métricas del servidor: contadores, indicadores y
+ * {@link Timer}.
+ *
+ * <p>Cada métrica se identifica por su nombre y sus etiquetas, que se pasan
+ * como pares nombre, valor. Pedir dos veces la misma métrica devuelve el mismo
+ * objeto, así que quien registra en el camino de cada petición puede guardarla
+ * y actualizarla sin buscarla de nuevo. Los contadores son {@link LongAdder} y
+ * los histogramas se actualizan con operaciones atómicas, sin cerrojos.</p>
+ *
+ * <p>{@link #scrape()} devuelve todas las métricas en el formato de texto de
+ * Prometheus: los medidores salen como <code>summary</code> en segundos, con
+ * los percentiles 0.5, 0.9, 0.99 y 0.999 de la última ventana y la cuenta y la
+ * suma acumuladas.</p>
+ *
+ * @author Alder
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(windowMs(), System::nanoTime);
+
+    private final long windowMs;
+    private final LongSupplier clock;
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un registro vacío.
+     *
+     * @param windowMs Duración de la ventana de los percentiles.
+     * @param clock Reloj en nanosegundos de los medidores.
+     */
+    MetricsRegistry(long windowMs, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.clock = clock;
+    }
+
+    /**
+     * @return El registro del servidor.
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private static long windowMs() {
+        try {
+            return Long.parseLong(ResourceBundle.getBundle("config.config").getString("metrics.window.ms"));
+        } catch (MissingResourceException e) {
+            // Las herramientas que no exportan métricas pueden no tener la clave
+            return 60000;
+        }
+    }
+
+    /**
+     * Devuelve un contador, creándolo si no existe.
+     *
+     * @param name El nombre, que debería terminar en <code>_total</code>.
+     * @param labels Pares de nombre y valor de las etiquetas.
+     * @return El contador.
+     */
+    public LongAdder counter(String name, String... labels) {
+        return ((CounterMetric) metrics.computeIfAbsent(key(name, labels),
+                k -> new CounterMetric(name, labelText(labels)))).adder;
+    }
+
+    /**
+     * Devuelve un medidor de duraciones, creándolo si no existe.
+     *
+     * @param name El nombre, que debería terminar en <code>_seconds</code>.
+     * @param labels Pares de nombre y valor de las etiquetas.
+     * @return El medidor.
+     */
+    public Timer timer(String name, String... labels) {
+        return ((TimerMetric) metrics.computeIfAbsent(key(name, labels),
+                k -> new TimerMetric(name, labelText(labels), new Timer(windowMs, clock)))).timer;
+    }
+
+    /**
+     * Registra un contador que ya lleva otra clase; su valor se lee al
+     * consultar las métricas. Si ya existe, se sustituye.
+     *
+     * @param name El nombre, que debería terminar en <code>_total</code>.
+     * @param value La función que da el valor acumulado, que nunca baja.
+     * @param labels Pares de nombre y valor de las etiquetas.
+     */
+    public void counter(String name, LongSupplier value, String... labels) {
+        metrics.put(key(name, labels), new GaugeMetric(name, labelText(labels), value, "counter"));
+    }
+
+    /**
+     * Registra un indicador cuyo valor se lee al consultar las métricas. Si ya
+     * existe, se sustituye.
+     *
+     * @param name El nombre.
+     * @param value La función que da el valor actual.
+     * @param labels Pares de nombre y valor de las etiquetas.
+     */
+    public void gauge(String name, LongSupplier value, String... labels) {
+        metrics.put(key(name, labels), new GaugeMetric(name, labelText(labels), value, "gauge"));
+    }
+
+    /**
+     * @return Todas las métricas en el formato de texto de Prometheus.
+     */
+    public String scrape() {
+        StringBuilder text = new StringBuilder(4096);
+        String family = null;
+        List<Metric> sorted = new ArrayList<>(metrics.values());
+        // Ordenadas por nombre y después por etiquetas, para que cada familia salga junta
+        sorted.sort(Comparator.comparing((Metric metric) -> metric.name).thenComparing(metric -> metric.labels));
+        for (Metric metric : sorted) {
+            if (!metric.name.equals(family)) {
+                family = metric.name;
+                text.append("# TYPE ").append(family).append(' ').append(metric.type()).append('\n');
+            }
+            Map<String, Double> samples = new LinkedHashMap<>();
+            metric.sample(samples);
+            for (Map.Entry<String, Double> sample : samples.entrySet()) {
+                text.append(sample.getKey()).append(' ').append(format(sample.getValue())).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return El valor de cada muestra, con el mismo nombre que en
+     * {@link #scrape()}.
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> samples = new TreeMap<>();
+        for (Metric metric : metrics.values()) {
+            metric.sample(samples);
+        }
+        return samples;
+    }
+
+    private static String key(String name, String[] labels) {
+        return labels.length == 0 ? name : name + labelText(labels);
+    }
+
+    /**
+     * Convierte los pares de etiquetas en <code>{a="1",b="2"}</code>.
+     */
+    private static String labelText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas van en pares de nombre y valor");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"")
+                    .append(String.valueOf(labels[i + 1]).replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * Añade una etiqueta al final de las que ya hay.
+     */
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Métrica con su nombre y sus etiquetas ya formateadas.
+     */
+    private abstract static class Metric {
+
+        final String name;
+        final String labels;
+
+        Metric(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+        abstract String type();
+
+        abstract void sample(Map<String, Double> samples);
+    }
+
+    private static class CounterMetric extends Metric {
+
+        final LongAdder adder = new LongAdder();
+
+        CounterMetric(String name, String labels) {
+            super(name, labels);
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void sample(Map<String, Double> samples) {
+            samples.put(name + labels, (double) adder.sum());
+        }
+    }
+
+    /**
+     * Métrica cuyo valor da una función: un indicador o un contador llevado
+     * por otra clase.
+     */
+    private static class GaugeMetric extends Metric {
+
+        final LongSupplier value;
+        final String type;
+
+        GaugeMetric(String name, String labels, LongSupplier value, String type) {
+            super(name, labels);
+            this.value = value;
+            this.type = type;
+        }
+
+        @Override
+        String type() {
+            return type;
+        }
+
+        @Override
+        void sample(Map<String, Double> samples) {
+            samples.put(name + labels, (double) value.getAsLong());
+        }
+    }
+
+    private static class TimerMetric extends Metric {
+
+        final Timer timer;
+
+        TimerMetric(String name, String labels, Timer timer) {
+            super(name, labels);
+            this.timer = timer;
+        }
+
+        @Override
+        String type() {
+            return "summary";
+        }
+
+        @Override
+        void sample(Map<String, Double> samples) {
+            LatencyHistogram window = timer.getWindow();
+            for (double quantile : QUANTILES) {
+                samples.put(name + withLabel(labels, "quantile", Double.toString(quantile)),
+                        window.getValueAtPercentile(quantile * 100) / 1e6);
+            }
+            samples.put(name + "_count" + labels, (double) timer.getCount());
+            samples.put(name + "_sum" + labels, timer.getSumNanos() / 1e9);
+        }
+    }
+}
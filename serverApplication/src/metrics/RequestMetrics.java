@@ -0,0 +1,108 @@
+package metrics;
+
+import Model.TipoMensaje;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tiempos de las peticiones de los clientes, por tipo de petición y
+ * {@link TipoMensaje} de la respuesta.
+ *
+ * <p>Se publican como <code>server_request_seconds</code> con las etiquetas
+ * <code>phase</code>, <code>request</code> y <code>outcome</code>. Los
+ * medidores de cada combinación se guardan en una tabla para no construir su
+ * nombre en cada petición. Por ejemplo, el p99 de los inicios de sesión
+ * correctos es
+ * <code>server_request_seconds{phase="total",request="SIGN_IN_REQUEST",outcome="OK_RESPONSE",quantile="0.99"}</code>.</p>
+ *
+ * @author Alder
+ */
+public final class RequestMetrics {
+
+    /**
+     * Parte de la petición que se mide.
+     */
+    public enum Phase {
+        /**
+         * Desde que se acepta la conexión, o llega el primer byte de la
+         * petición en una conexión persistente, hasta que se envía la
+         * respuesta.
+         */
+        TOTAL,
+        /**
+         * Lectura y decodificación de la petición.
+         */
+        DECODE,
+        /**
+         * Acceso a datos con {@link ISignable.Signable}.
+         */
+        DAO,
+        /**
+         * Codificación y envío de la respuesta.
+         */
+        ENCODE
+    }
+
+    private static final TipoMensaje[] TYPES = TipoMensaje.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Medidores por fase, petición y respuesta; la última posición de cada
+     * tipo es para los mensajes sin tipo.
+     */
+    private static final AtomicReferenceArray<Timer> TIMERS =
+            new AtomicReferenceArray<>(PHASES.length * (TYPES.length + 1) * (TYPES.length + 1));
+
+    private RequestMetrics() {
+    }
+
+    /**
+     * Registra la duración de una fase de una petición.
+     *
+     * @param phase La fase.
+     * @param request El tipo de la petición.
+     * @param outcome El tipo de la respuesta.
+     * @param nanos La duración en nanosegundos.
+     */
+    public static void record(Phase phase, TipoMensaje request, TipoMensaje outcome, long nanos) {
+        timer(phase, request, outcome).record(nanos);
+    }
+
+    /**
+     * Registra los tiempos de una petición respondida: total, decodificación y
+     * codificación. El acceso a datos lo registra quien lo hace.
+     *
+     * @param request El tipo de la petición.
+     * @param outcome El tipo de la respuesta.
+     * @param totalNanos El tiempo total.
+     * @param decodeNanos El tiempo de decodificación.
+     * @param encodeNanos El tiempo de codificación y envío.
+     */
+    public static void recordExchange(TipoMensaje request, TipoMensaje outcome, long totalNanos, long decodeNanos,
+            long encodeNanos) {
+        record(Phase.TOTAL, request, outcome, totalNanos);
+        record(Phase.DECODE, request, outcome, decodeNanos);
+        record(Phase.ENCODE, request, outcome, encodeNanos);
+    }
+
+    /**
+     * Devuelve el medidor de una combinación, creándolo en el primer uso.
+     */
+    static Timer timer(Phase phase, TipoMensaje request, TipoMensaje outcome) {
+        int index = (phase.ordinal() * (TYPES.length + 1) + ordinal(request)) * (TYPES.length + 1) + ordinal(outcome);
+        Timer timer = TIMERS.get(index);
+        if (timer == null) {
+            // El registro devuelve siempre el mismo medidor, así que la carrera no importa
+            timer = MetricsRegistry.getInstance().timer("server_request_seconds",
+                    "phase", phase.name().toLowerCase(Locale.ROOT),
+                    "request", String.valueOf(request),
+                    "outcome", String.valueOf(outcome));
+            TIMERS.set(index, timer);
+        }
+        return timer;
+    }
+
+    private static int ordinal(TipoMensaje type) {
+        return type == null ? TYPES.length : type.ordinal();
+    }
+}
@@ -0,0 +1,114 @@
+package metrics;
+
+import Utils.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Mide la duración de una operación.
+ *
+ * <p>El número de mediciones y su suma se acumulan desde el arranque. Los
+ * percentiles se calculan con un {@link LatencyHistogram} por ventana de
+ * <code>metrics.window.ms</code>: se publican los de la última ventana
+ * completa, o los de la actual mientras no haya ninguna, para que una alerta
+ * sobre el p99 refleje el comportamiento reciente y no el de todo el día. La
+ * ventana se cambia al registrar o al consultar, sin hilos propios.</p>
+ *
+ * @author Alder
+ */
+public class Timer {
+
+    /**
+     * Histograma vacío que se publica si la última ventana no tuvo registros;
+     * nunca se registra nada en él.
+     */
+    private static final LatencyHistogram EMPTY = new LatencyHistogram();
+
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicReference<Window> current;
+    private volatile LatencyHistogram previous;
+
+    /**
+     * Crea el medidor.
+     *
+     * @param windowMs Duración de la ventana de los percentiles.
+     * @param clock Reloj en nanosegundos.
+     */
+    Timer(long windowMs, LongSupplier clock) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMs));
+        this.clock = clock;
+        this.current = new AtomicReference<>(new Window(clock.getAsLong()));
+    }
+
+    /**
+     * Registra una duración.
+     *
+     * @param nanos La duración en nanosegundos.
+     */
+    public void record(long nanos) {
+        count.increment();
+        sumNanos.add(nanos);
+        window().histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @return El número de duraciones registradas desde el arranque.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return La suma de las duraciones registradas desde el arranque, en
+     * nanosegundos.
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * @return El histograma de la última ventana completa, o el de la actual si
+     * todavía no ha terminado ninguna. Sus valores son microsegundos.
+     */
+    public LatencyHistogram getWindow() {
+        Window window = window();
+        LatencyHistogram last = previous;
+        return last != null ? last : window.histogram;
+    }
+
+    /**
+     * Devuelve la ventana actual, cambiándola si ya ha pasado su tiempo.
+     */
+    private Window window() {
+        Window window = current.get();
+        long now = clock.getAsLong();
+        if (now - window.start < windowNanos) {
+            return window;
+        }
+        // Si han pasado varias ventanas sin registros, la anterior está vacía
+        Window next = new Window(now);
+        if (current.compareAndSet(window, next)) {
+            previous = now - window.start < 2 * windowNanos ? window.histogram : EMPTY;
+            return next;
+        }
+        return current.get();
+    }
+
+    /**
+     * Histograma de una ventana y su inicio.
+     */
+    private static class Window {
+
+        final long start;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
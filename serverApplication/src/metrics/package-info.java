@@ -0,0 +1,5 @@
+/**
+ * Paquete con las métricas del servidor y las formas de consultarlas: un
+ * endpoint HTTP de texto y un MBean de JMX.
+ */
+package metrics;
@@ -1,12 +1,26 @@
 package serverapplication;
 
+import Model.NioServer;
 import Model.Server;
 import Model.Worker;
+import database.DaoFactory;
+import database.SchemaCheck;
+import java.util.ResourceBundle;
+import logging.AsyncHandler;
+import metrics.MetricsExporter;
 
 /**
- * The main class for the server application. This class initializes the server
- * with a default port (9999) or a port provided through the command line.
- * It then creates and starts an instance of the server using the specified port.
+ * The main class for the server application. It starts the server in this
+ * order:
+ * <ol>
+ *     <li>{@link AsyncHandler} moves log output to a background thread.</li>
+ *     <li>{@link MetricsExporter} starts the metrics endpoint and MBean.</li>
+ *     <li>{@link SchemaCheck} verifies the indexes the sign-in queries need,
+ *     unless {@code dao.backend=memory} keeps users in memory.</li>
+ *     <li>The DAO is created, so its e-mail filter starts loading.</li>
+ *     <li>{@code SERVER_MODE} in {@code Utils.socketConfig} starts the blocking
+ *     {@link Server} or the non-blocking {@link NioServer}.</li>
+ * </ol>
  * 
  * <p>The server listens for incoming connections from clients, handling requests
  * as defined in the {@link Worker} class.</p>
@@ -28,7 +42,28 @@ public class ServerApplication {
    public static void main(String[] args) {
         int port = 0;  // Default port
 
+        ResourceBundle config = ResourceBundle.getBundle("config.config");
+
+        // Write the log from a background thread
+        AsyncHandler.install(config);
+
+        // Publish the metrics over HTTP and JMX
+        MetricsExporter.start(config);
+
+        // Check the indexes used by the sign-in queries; there are none in memory
+        if (!DaoFactory.isInMemory()) {
+            SchemaCheck.run();
+        }
+
+        // Create the DAO now so the e-mail filter loads before the first sign-in
+        DaoFactory.getSignable();
+
         // Create a server instance
-        Server server = new Server();
+        String mode = ResourceBundle.getBundle("Utils.socketConfig").getString("SERVER_MODE");
+        if ("nio".equalsIgnoreCase(mode.trim())) {
+            NioServer server = new NioServer();
+        } else {
+            Server server = new Server();
+        }
       }
 }
@@ -0,0 +1,114 @@
+package Model;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import metrics.MetricsRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class AcceptorTest {
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void testAcceptorsListenOnTheSamePort() throws Exception {
+        int port = freePort();
+        List<ServerSocket> sockets = Acceptor.bind(port, 3, 50);
+        try {
+            // Sin SO_REUSEPORT hay un único socket compartido
+            assertTrue(sockets.size() == 3 || sockets.size() == 1);
+            for (ServerSocket socket : sockets) {
+                assertEquals(port, socket.getLocalPort());
+            }
+            try (Socket client = new Socket("127.0.0.1", port)) {
+                assertTrue(client.isConnected());
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSingleAcceptorUsesOneSocket() throws Exception {
+        List<ServerSocket> sockets = Acceptor.bind(freePort(), 1, 50);
+        try {
+            assertEquals(1, sockets.size());
+        } finally {
+            sockets.get(0).close();
+        }
+    }
+
+    @Test
+    public void testAcceptedCountersAddUpToTheClients() throws Exception {
+        final int clients = 30;
+        int port = freePort();
+        List<ServerSocket> sockets = Acceptor.bind(port, 3, 50);
+        WorkerPool workerPool = new WorkerPool(2, 4, clients, 1);
+        List<Acceptor> acceptors = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        List<LongAdder> accepted = new ArrayList<>();
+        List<LongAdder> errors = new ArrayList<>();
+        long before = 0;
+        try {
+            for (int i = 0; i < 3; i++) {
+                // Ids propios: los contadores del registro son globales
+                String id = String.valueOf(101 + i);
+                accepted.add(MetricsRegistry.getInstance().counter("server_accepted_total", "acceptor", id));
+                errors.add(MetricsRegistry.getInstance().counter("server_accept_errors_total", "acceptor", id));
+                before += accepted.get(i).sum();
+                Acceptor acceptor = new Acceptor(101 + i, sockets.get(i % sockets.size()), workerPool);
+                acceptors.add(acceptor);
+                Thread thread = new Thread(acceptor, "acceptor-test-" + id);
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (int i = 0; i < clients; i++) {
+                new Socket("127.0.0.1", port).close();
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            long total;
+            while ((total = sum(accepted) - before) < clients && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(clients, total);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(acceptors.get(i).getStatistics().contains(accepted.get(i).sum() + " conexiones aceptadas"));
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+            for (Thread thread : threads) {
+                thread.join(5000);
+            }
+            workerPool.shutdown(5);
+        }
+        for (Thread thread : threads) {
+            assertFalse(thread.isAlive());
+        }
+        // Cerrar el socket detiene el aceptador sin contarlo como error
+        assertEquals(0, sum(errors));
+    }
+
+    private static long sum(List<LongAdder> counters) {
+        long total = 0;
+        for (LongAdder counter : counters) {
+            total += counter.sum();
+        }
+        return total;
+    }
+}
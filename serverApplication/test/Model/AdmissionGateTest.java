@@ -0,0 +1,91 @@
+package Model;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class AdmissionGateTest {
+
+    @Test
+    public void testTryAcquireRespectsLimit() {
+        AdmissionGate gate = new AdmissionGate(2);
+
+        assertTrue(gate.tryAcquire());
+        assertTrue(gate.tryAcquire());
+        assertFalse(gate.tryAcquire());
+
+        assertEquals(2, gate.getCurrent());
+        assertEquals(2, gate.getPeak());
+        assertEquals(1, gate.getRejected());
+
+        gate.release();
+        assertTrue(gate.tryAcquire());
+    }
+
+    @Test
+    public void testTryAcquireWithTimeoutWaitsForRelease() throws Exception {
+        AdmissionGate gate = new AdmissionGate(1);
+        assertTrue(gate.tryAcquire());
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gate.release();
+        });
+        releaser.start();
+
+        assertTrue(gate.tryAcquire(2, TimeUnit.SECONDS));
+        releaser.join();
+        assertFalse(gate.tryAcquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, gate.getRejected());
+    }
+
+    @Test
+    public void testNeverAdmitsMoreThanLimitUnderContention() throws Exception {
+        int limit = 5;
+        AdmissionGate gate = new AdmissionGate(limit);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxSeen = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        for (int i = 0; i < 16; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 2000; j++) {
+                    if (gate.tryAcquire()) {
+                        maxSeen.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                        gate.release();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(maxSeen.get() <= limit);
+        assertTrue(gate.getPeak() <= limit);
+        assertEquals(0, gate.getCurrent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseWithoutAcquireFails() {
+        new AdmissionGate(1).release();
+    }
+}
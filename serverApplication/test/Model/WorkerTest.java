@@ -0,0 +1,47 @@
+package Model;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class WorkerTest {
+
+    @Test
+    public void testRejectDoesNotWaitForTheRequest() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                Socket client = new Socket("127.0.0.1", server.getLocalPort())) {
+            Socket accepted = server.accept();
+            long start = System.nanoTime();
+            new Worker(accepted).reject();
+            // El cliente todavía no ha enviado nada: el rechazo no puede esperar a leerlo
+            assertTrue(System.nanoTime() - start < 200_000_000L);
+
+            Message request = new Message();
+            request.setTipo(TipoMensaje.SIGN_IN_REQUEST);
+            MessageCodec.write(client.getOutputStream(), request);
+            client.setSoTimeout(5000);
+            assertEquals(TipoMensaje.MAX_THREAD_USER, MessageCodec.read(client.getInputStream()).getTipo());
+        }
+    }
+
+    @Test
+    public void testIdleConnectionGivesUpItsThreadWhenOthersAreWaiting() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                Socket client = new Socket("127.0.0.1", server.getLocalPort())) {
+            Worker worker = new Worker(server.accept());
+            worker.setWaitingConnections(() -> 1);
+            Thread thread = new Thread(worker);
+            thread.start();
+
+            // Mucho antes de CONNECTION_IDLE_TIMEOUT_MS el servidor cierra la conexión
+            client.setSoTimeout(5000);
+            assertEquals(-1, client.getInputStream().read());
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+    }
+}
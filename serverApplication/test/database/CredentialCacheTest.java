@@ -0,0 +1,66 @@
+package database;
+
+import Model.User;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class CredentialCacheTest {
+
+    private static User signedIn(String email, String password) {
+        return new User(email, password, "Ana", true, 2, "Calle 1", "Bilbao", 48001);
+    }
+
+    @Test
+    public void testLookupNeedsSamePasswordAndFillsProfile() {
+        CredentialCache cache = new CredentialCache(100, 60000);
+        cache.put("ana@example.com", signedIn("ana@example.com", "abcd*1234"));
+
+        User wrong = new User("ana@example.com", "otra", null, false, 0, null, null, 0);
+        assertFalse(cache.lookup(wrong));
+
+        User right = new User("ana@example.com", "abcd*1234", null, false, 0, null, null, 0);
+        assertTrue(cache.lookup(right));
+        assertEquals("Ana", right.getName());
+        assertEquals(48001, right.getZip());
+        assertEquals(2, right.getCompanyID());
+        assertTrue(right.isActivo());
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testEntriesExpireAndCanBeInvalidated() {
+        AtomicLong now = new AtomicLong();
+        CredentialCache cache = new CredentialCache(100, 1000, now::get);
+        cache.put("ana@example.com", signedIn("ana@example.com", "abcd*1234"));
+        cache.put("ben@example.com", signedIn("ben@example.com", "abcd*1234"));
+
+        cache.invalidate("ben@example.com");
+        assertFalse(cache.lookup(signedIn("ben@example.com", "abcd*1234")));
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(999));
+        assertTrue(cache.lookup(signedIn("ana@example.com", "abcd*1234")));
+        now.set(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertFalse(cache.lookup(signedIn("ana@example.com", "abcd*1234")));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        CredentialCache cache = new CredentialCache(1, 60000);
+        cache.put("ana@example.com", signedIn("ana@example.com", "abcd*1234"));
+        cache.put("ben@example.com", signedIn("ben@example.com", "abcd*1234"));
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertFalse(cache.lookup(signedIn("ana@example.com", "abcd*1234")));
+        assertTrue(cache.lookup(signedIn("ben@example.com", "abcd*1234")));
+    }
+}
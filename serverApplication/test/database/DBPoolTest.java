@@ -0,0 +1,165 @@
+package database;
+
+import exception.ConnectionException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PropertyResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class DBPoolTest {
+
+    private DBPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        TestDriver.register();
+        TestDriver.reset();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.releaseAllConnections();
+        }
+    }
+
+    /**
+     * Configuración de un pool de dos conexiones; cada par de argumentos
+     * sustituye una clave.
+     */
+    static PropertyResourceBundle config(String... overrides) throws IOException {
+        StringBuilder text = new StringBuilder()
+                .append("jdbc.url=").append(TestDriver.URL).append('\n')
+                .append("db.user=test\ndb.password=test\nmax.connections=2\n")
+                .append("pool.borrow.timeout.ms=2000\npool.validation.interval.ms=60000\n")
+                .append("pool.max.lifetime.ms=1800000\npool.idle.timeout.ms=600000\npool.min.idle=2\n")
+                .append("pool.validate.idle.after.ms=-1\npool.validate.on.return=false\n")
+                .append("pool.statement.cache.size=4\njdbc.prepare.threshold=1\n")
+                .append("pool.leak.detection=false\npool.leak.threshold.ms=10000\npool.leak.reclaim.ms=0\n");
+        for (int i = 0; i < overrides.length; i += 2) {
+            text.append(overrides[i]).append('=').append(overrides[i + 1]).append('\n');
+        }
+        return new PropertyResourceBundle(new StringReader(text.toString()));
+    }
+
+    @Test
+    public void testMaintenanceNeverLetsThePoolGrowPastItsMaximum() throws Exception {
+        // La validación saca conexiones de la cola en cada pasada
+        pool = new DBPool(config("pool.validation.interval.ms", "1"));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        List<Thread> borrowers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread borrower = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        Connection con = pool.getConnection();
+                        pool.releaseConnection(con);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            borrowers.add(borrower);
+            borrower.start();
+        }
+        for (Thread borrower : borrowers) {
+            borrower.join();
+        }
+        assertNull(failure.get());
+        assertTrue("Conexiones abiertas a la vez: " + TestDriver.peak.get(), TestDriver.peak.get() <= 2);
+        assertTrue(TestDriver.validations.get() > 0);
+    }
+
+    @Test
+    public void testReclaimClosesAConnectionStillInUse() throws Exception {
+        pool = new DBPool(config("pool.leak.detection", "true", "pool.leak.threshold.ms", "50",
+                "pool.leak.reclaim.ms", "100", "pool.borrow.timeout.ms", "200"));
+        Connection leaked = pool.getConnection();
+        pool.prepareStatement(leaked, "SELECT 1");
+        Connection longRunning = pool.getLongRunningConnection();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!leaked.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(leaked.isClosed());
+        assertFalse(longRunning.isClosed());
+        try {
+            pool.prepareStatement(leaked, "SELECT 1");
+            fail("Una conexión recuperada no debe dar sentencias");
+        } catch (SQLException e) {
+            // El prestatario ve el error en su siguiente llamada
+        }
+
+        // El hueco de la conexión recuperada ya está libre; esta tampoco se recupera mientras esperamos
+        Connection replacement = pool.getLongRunningConnection();
+        // Devolverla tarde no libera un segundo hueco
+        pool.releaseConnection(leaked);
+        try {
+            pool.getConnection();
+            fail("El pool no puede pasar de dos conexiones");
+        } catch (ConnectionException e) {
+            // Esperado
+        }
+        pool.releaseConnection(replacement);
+        pool.releaseConnection(longRunning);
+    }
+
+    @Test
+    public void testReclaimedConnectionNeverReleasedIsForgotten() throws Exception {
+        pool = new DBPool(config("pool.leak.detection", "true", "pool.leak.threshold.ms", "20",
+                "pool.leak.reclaim.ms", "50", "pool.borrow.timeout.ms", "200"));
+        Connection leaked = pool.getConnection();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getReclaimedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getReclaimedCount());
+        // Pasadas diez veces pool.leak.reclaim.ms ya no se guarda
+        while (pool.getReclaimedCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, pool.getReclaimedCount());
+
+        // Devolverla después se ignora y no libera un hueco de más
+        pool.releaseConnection(leaked);
+        Connection first = pool.getLongRunningConnection();
+        Connection second = pool.getLongRunningConnection();
+        try {
+            pool.getConnection();
+            fail("El pool no puede pasar de dos conexiones");
+        } catch (ConnectionException e) {
+            // Esperado
+        }
+        pool.releaseConnection(first);
+        pool.releaseConnection(second);
+    }
+
+    @Test
+    public void testEvictedStatementStaysOpenUntilRelease() throws Exception {
+        pool = new DBPool(config("pool.statement.cache.size", "1"));
+        Connection con = pool.getConnection();
+        PreparedStatement first = pool.prepareStatement(con, "SELECT 1");
+        PreparedStatement second = pool.prepareStatement(con, "SELECT 2");
+        // La caché solo guarda una sentencia, pero la primera sigue en uso
+        assertFalse(first.isClosed());
+        pool.releaseConnection(con);
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+    }
+}
@@ -0,0 +1,36 @@
+package database;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Omar
+ */
+public class EmailBloomFilterTest {
+
+    @Test
+    public void testAddedEmailsAreAlwaysFound() {
+        EmailBloomFilter filter = new EmailBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysNearTarget() {
+        EmailBloomFilter filter = new EmailBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("unknown" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Falsos positivos: " + falsePositives, falsePositives < 2000);
+    }
+}
@@ -0,0 +1,44 @@
+package database;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class PasswordHasherTest {
+
+    /**
+     * Hash calculado con passlib/hashlib para la contraseña "abcd*1234".
+     */
+    private static final String PASSLIB_HASH = "$pbkdf2-sha512$1000$MDEyMzQ1Njc4OWFiY2RlZg$"
+            + "8eA3nw4suTdh3PAK/rUIFpxzH0Q93P..nlyx8HJvZ38Y3h/w7DYLA6QnwvMYylCu52jWMOUwMkuOegtKhFcc/A";
+
+    private final PasswordHasher hasher = new PasswordHasher(1000, 2, 10);
+
+    @Test
+    public void testHashVerifiesOnlyTheSamePassword() throws Exception {
+        String hash = hasher.hash("abcd*1234");
+        assertTrue(PasswordHasher.isHashed(hash));
+        assertNotEquals(hash, hasher.hash("abcd*1234"));
+        assertTrue(hasher.verify("abcd*1234", hash));
+        assertFalse(hasher.verify("abcd*1235", hash));
+        assertFalse(hasher.verify(null, hash));
+    }
+
+    @Test
+    public void testReadsPasslibHashes() throws Exception {
+        assertTrue(hasher.verify("abcd*1234", PASSLIB_HASH));
+        assertFalse(hasher.verify("abcd*1234", PASSLIB_HASH.substring(0, PASSLIB_HASH.length() - 2)));
+        assertFalse(hasher.verify("abcd*1234", "$pbkdf2-sha512$x$y"));
+    }
+
+    @Test
+    public void testPlainPasswordsAreAcceptedAndNeedUpgrade() throws Exception {
+        assertTrue(hasher.verify("abcd*1234", "abcd*1234"));
+        assertFalse(hasher.verify("abcd*1234", "abcd*12345"));
+        assertTrue(hasher.needsUpgrade("abcd*1234"));
+        assertFalse(hasher.needsUpgrade(PASSLIB_HASH));
+        assertTrue(new PasswordHasher(2000, 1, 1).needsUpgrade(PASSLIB_HASH));
+    }
+}
@@ -0,0 +1,42 @@
+package database;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class PooledConnectionTest {
+
+    @Test
+    public void testTrackedBorrowRecordsCallerOutsideThePool() {
+        PooledConnection pooled = new PooledConnection(null, 1);
+        pooled.borrowed(true);
+        assertEquals(PooledConnectionTest.class.getName() + ".testTrackedBorrowRecordsCallerOutsideThePool",
+                pooled.getCaller());
+        assertTrue(pooled.getBorrowTrace().getMessage().contains(Thread.currentThread().getName()));
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        assertTrue(pooled.getHoldTime(now) >= TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testUntrackedBorrowKeepsNoStack() {
+        PooledConnection pooled = new PooledConnection(null, 1);
+        pooled.borrowed(false);
+        assertNull(pooled.getCaller());
+        assertNull(pooled.getBorrowTrace());
+    }
+
+    @Test
+    public void testLeakIsReportedOncePerBorrow() {
+        PooledConnection pooled = new PooledConnection(null, 1);
+        pooled.borrowed(true);
+        assertTrue(pooled.markLeakReported());
+        assertFalse(pooled.markLeakReported());
+        assertTrue(pooled.isLeakReported());
+        pooled.borrowed(true);
+        assertFalse(pooled.isLeakReported());
+        assertTrue(pooled.markLeakReported());
+    }
+}
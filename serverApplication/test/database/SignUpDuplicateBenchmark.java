@@ -0,0 +1,162 @@
+package database;
+
+import Model.User;
+import exception.UserAlreadyExistsException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara las dos formas de detectar emails repetidos en
+ * {@link UserDao#signUp(User)} con una carga en la que la mayoría de los
+ * registros son de emails que ya existen.
+ *
+ * <p>Necesita la base de datos de <code>config.config</code>, igual que
+ * {@link UserDaoRollbackTest}. Se ejecuta a mano, no con los tests:</p>
+ * <pre>
+ * java database.SignUpDuplicateBenchmark [operaciones] [hilos] [proporción de repetidos]
+ * </pre>
+ * <p>Para cada modo registra el rendimiento, la latencia, los resultados y
+ * cuántas transacciones abortadas y tuplas muertas ha dejado. Al terminar borra
+ * los usuarios que ha creado.</p>
+ *
+ * @author Omar
+ */
+public class SignUpDuplicateBenchmark {
+
+    private static final int SEEDED = 50;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double duplicateRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.9;
+        String prefix = "bench.dup." + System.currentTimeMillis() + ".";
+
+        UserDao seeder = new UserDao(true);
+        for (int i = 0; i < SEEDED; i++) {
+            seeder.signUp(user(prefix + "seed" + i + "@example.com"));
+        }
+        try {
+            // Calentamiento con cada modo para preparar las sentencias en caché
+            run("calentamiento", new UserDao(false), prefix, "w0", operations / 10, threads, duplicateRatio);
+            run("calentamiento", new UserDao(true), prefix, "w1", operations / 10, threads, duplicateRatio);
+
+            run("INSERT fallido", new UserDao(false), prefix, "a", operations, threads, duplicateRatio);
+            run("comprobación + ON CONFLICT", new UserDao(true), prefix, "b", operations, threads, duplicateRatio);
+        } finally {
+            System.out.println("Borrados " + cleanUp(prefix) + " usuarios de prueba");
+            DBPool.getInstance().releaseAllConnections();
+        }
+    }
+
+    private static void run(String name, UserDao dao, String prefix, String tag, int operations, int threads,
+            double duplicateRatio) throws Exception {
+        long[] latencies = new long[operations];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger fresh = new AtomicInteger();
+        AtomicLong created = new AtomicLong();
+        AtomicLong existing = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        String newPrefix = prefix + tag + ".";
+        long[] before = databaseCounters();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                int op;
+                while ((op = next.getAndIncrement()) < operations) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    String email = random.nextDouble() < duplicateRatio
+                            ? prefix + "seed" + random.nextInt(SEEDED) + "@example.com"
+                            : newPrefix + fresh.getAndIncrement() + "@example.com";
+                    long opStart = System.nanoTime();
+                    try {
+                        if (dao.signUp(user(email)) != null) {
+                            created.incrementAndGet();
+                        } else {
+                            existing.incrementAndGet();
+                        }
+                    } catch (UserAlreadyExistsException e) {
+                        existing.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[op] = System.nanoTime() - opStart;
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long[] after = databaseCounters();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-28s %8.0f ops/s  p50 %6.2f ms  p99 %6.2f ms  creados %d  existentes %d  errores %d"
+                + "  rollbacks %d  tuplas muertas %d%n",
+                name, operations / seconds,
+                latencies[operations / 2] / 1e6, latencies[(int) (operations * 0.99)] / 1e6,
+                created.get(), existing.get(), errors.get(), after[0] - before[0], after[1] - before[1]);
+    }
+
+    private static User user(String email) {
+        return new User(email, "abcd*1234", "Bench", true, 1, "Calle Mayor", "Bilbao", 48001);
+    }
+
+    /**
+     * Lee las transacciones abortadas de la base de datos y las tuplas muertas
+     * de las dos tablas. Las estadísticas de PostgreSQL se publican con algo
+     * de retraso, así que las tuplas muertas son aproximadas.
+     */
+    private static long[] databaseCounters() throws Exception {
+        Connection connection = DBPool.getInstance().getConnection();
+        try {
+            long rollbacks;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT xact_rollback FROM pg_stat_database WHERE datname = current_database()");
+                    ResultSet rs = ps.executeQuery()) {
+                rollbacks = rs.next() ? rs.getLong(1) : 0;
+            }
+            long deadTuples;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT coalesce(sum(n_dead_tup), 0) FROM pg_stat_user_tables WHERE relname IN ('res_users', 'res_partner')");
+                    ResultSet rs = ps.executeQuery()) {
+                deadTuples = rs.next() ? rs.getLong(1) : 0;
+            }
+            return new long[]{rollbacks, deadTuples};
+        } finally {
+            DBPool.getInstance().releaseConnection(connection);
+        }
+    }
+
+    private static int cleanUp(String prefix) throws Exception {
+        Connection connection = DBPool.getInstance().getConnection();
+        try {
+            int deleted;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM public.res_users WHERE login LIKE ?")) {
+                ps.setString(1, prefix + "%");
+                deleted = ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM public.res_partner WHERE email LIKE ?")) {
+                ps.setString(1, prefix + "%");
+                ps.executeUpdate();
+            }
+            return deleted;
+        } catch (SQLException e) {
+            System.err.println("No se pudieron borrar los usuarios de prueba: " + e.getMessage());
+            return 0;
+        } finally {
+            DBPool.getInstance().releaseConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/*
+* Driver JDBC en memoria para probar DBPool sin base de datos. Acepta las URL
+* jdbc:test: y cuenta las conexiones abiertas.
+* @author Alder
+ */
+final class TestDriver implements Driver {
+
+    static final String URL = "jdbc:test:pool";
+
+    private static final TestDriver INSTANCE = new TestDriver();
+
+    private static boolean registered;
+
+    /** Conexiones abiertas y no cerradas. */
+    static final AtomicInteger open = new AtomicInteger();
+
+    /** Máximo de conexiones abiertas a la vez desde {@link #reset()}. */
+    static final AtomicInteger peak = new AtomicInteger();
+
+    /** Llamadas a <code>isValid</code>. */
+    static final AtomicInteger validations = new AtomicInteger();
+
+    private TestDriver() {
+    }
+
+    static synchronized void register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(INSTANCE);
+            registered = true;
+        }
+    }
+
+    static void reset() {
+        open.set(0);
+        peak.set(0);
+        validations.set(0);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        peak.accumulateAndGet(open.incrementAndGet(), Math::max);
+        boolean[] closed = {false};
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isClosed":
+                    return closed[0];
+                case "isValid":
+                    validations.incrementAndGet();
+                    return !closed[0];
+                case "close":
+                    synchronized (closed) {
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            open.decrementAndGet();
+                        }
+                    }
+                    return null;
+                case "prepareStatement":
+                    if (closed[0]) {
+                        throw new SQLException("Connection is closed");
+                    }
+                    boolean[] psClosed = {false};
+                    return proxy(PreparedStatement.class, (ps, m, a) -> {
+                        switch (m.getName()) {
+                            case "isClosed":
+                                return psClosed[0];
+                            case "close":
+                                psClosed[0] = true;
+                                return null;
+                            default:
+                                return defaultValue(ps, m.getName(), m.getReturnType(), a);
+                        }
+                    });
+                default:
+                    return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+            }
+        });
+    }
+
+    private static Object defaultValue(Object proxy, String name, Class<?> type, Object[] args) {
+        switch (name) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "test";
+            default:
+                break;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TestDriver.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith("jdbc:test:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,49 @@
+package importer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class ImportCheckpointTest {
+
+    private Path file;
+
+    @After
+    public void tearDown() throws Exception {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSaveLoadAndDelete() throws Exception {
+        file = Files.createTempFile("import", ".checkpoint");
+        Files.delete(file);
+
+        ImportCheckpoint empty = ImportCheckpoint.load(file);
+        assertEquals(0, empty.getLine());
+
+        ImportStats stats = new ImportStats();
+        stats.read.set(10);
+        stats.rejected.set(1);
+        stats.created.set(6);
+        stats.existing.set(2);
+        stats.errors.set(1);
+        empty.save(42, stats);
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+
+        ImportCheckpoint loaded = ImportCheckpoint.load(file);
+        assertEquals(42, loaded.getLine());
+        ImportStats restored = new ImportStats();
+        loaded.restore(restored);
+        assertEquals(stats.toString(), restored.toString());
+
+        loaded.delete();
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,74 @@
+package importer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class RecordReaderTest {
+
+    private Path file;
+
+    @After
+    public void tearDown() throws Exception {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path write(String suffix, String content) throws Exception {
+        file = Files.createTempFile("records", suffix);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testCsvHeaderWithByteOrderMark() throws Exception {
+        try (RecordReader reader = new RecordReader(write(".csv", "﻿Email,Name\na@b.es,\"Pérez, \"\"Ana\"\"\"\n"),
+                RecordReader.Format.CSV)) {
+            RecordReader.Record record = reader.next();
+            assertNull(record.error);
+            assertEquals("a@b.es", record.fields.get("email"));
+            assertEquals("Pérez, \"Ana\"", record.fields.get("name"));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testLineNumbersSkipBlankLinesAndKeepErrors() throws Exception {
+        try (RecordReader reader = new RecordReader(write(".csv", "email,name\n\na@b.es,Ana\nsolo\n\"sin cerrar\n"),
+                RecordReader.Format.CSV)) {
+            RecordReader.Record record = reader.next();
+            assertEquals(3, record.line);
+            assertNull(record.error);
+            record = reader.next();
+            assertEquals(4, record.line);
+            assertNotNull(record.error);
+            record = reader.next();
+            assertEquals(5, record.line);
+            assertEquals("Comillas sin cerrar", record.error);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        try (RecordReader reader = new RecordReader(write(".jsonl",
+                "﻿{\"Email\": \"a@b.es\", \"zip\": 28001, \"active\": false, \"street\": null}\n{\"email\": [1]}\n"),
+                RecordReader.Format.JSONL)) {
+            RecordReader.Record record = reader.next();
+            assertEquals(1, record.line);
+            assertEquals("a@b.es", record.fields.get("email"));
+            assertEquals("28001", record.fields.get("zip"));
+            assertEquals("false", record.fields.get("active"));
+            assertTrue(record.fields.containsKey("street"));
+            assertNull(record.fields.get("street"));
+            assertNotNull(reader.next().error);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package importer;
+
+import ISignable.Signable;
+import Model.SignUpStatus;
+import Model.User;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class UserImportTest {
+
+    private Path file;
+    private Path checkpointFile;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("users", ".csv");
+        checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        StringBuilder csv = new StringBuilder("email,password,name,street,city,zip\n");
+        for (int i = 1; i <= 6; i++) {
+            csv.append("user").append(i).append("@test.es,secreto,Usuario,Calle,Bilbao,48001\n");
+        }
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    private static UserImport.Batch batch(long sequence, long lastLine, long created, long errors) {
+        UserImport.Batch batch = new UserImport.Batch(sequence);
+        batch.lastLine = lastLine;
+        batch.read = created + errors;
+        batch.created = created;
+        batch.errors = errors;
+        return batch;
+    }
+
+    @Test
+    public void testCheckpointWaitsForEarlierBatches() throws Exception {
+        UserImport userImport = new UserImport(file, RecordReader.Format.CSV, ImportCheckpoint.load(checkpointFile),
+                1, 2, new FakeSignable());
+        userImport.finish(batch(1, 5, 2, 0));
+        assertEquals(0, userImport.getCommittedLine());
+        userImport.finish(batch(0, 3, 2, 0));
+        assertEquals(5, userImport.getCommittedLine());
+    }
+
+    @Test
+    public void testCheckpointStopsAtTheFirstFailedBatch() throws Exception {
+        UserImport userImport = new UserImport(file, RecordReader.Format.CSV, ImportCheckpoint.load(checkpointFile),
+                1, 2, new FakeSignable());
+        userImport.finish(batch(0, 3, 2, 0));
+        userImport.finish(batch(2, 7, 2, 0));
+        userImport.finish(batch(1, 5, 1, 1));
+        userImport.finish(batch(3, 9, 2, 0));
+        assertEquals(3, userImport.getCommittedLine());
+    }
+
+    @Test
+    public void testResumeRetriesFailedRowsWithoutCountingTwice() throws Exception {
+        FakeSignable signable = new FakeSignable();
+        signable.failing.add("user3@test.es");
+        new UserImport(file, RecordReader.Format.CSV, ImportCheckpoint.load(checkpointFile), 1, 2, signable).run(60000);
+
+        // El lote con user3 y user4 falla: el punto de control se queda en el primer lote
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(checkpointFile);
+        assertEquals(3, checkpoint.getLine());
+        ImportStats saved = new ImportStats();
+        checkpoint.restore(saved);
+        assertEquals(2, saved.read.get());
+        assertEquals(2, saved.created.get());
+        assertEquals(0, saved.errors.get());
+
+        signable.failing.clear();
+        signable.attempts.clear();
+        UserImport resumed = new UserImport(file, RecordReader.Format.CSV, checkpoint, 1, 2, signable);
+        resumed.run(60000);
+        assertEquals(4, signable.attempts.size());
+        assertTrue(signable.attempts.contains("user3@test.es"));
+        // user5 y user6 ya se crearon en el primer intento y ahora cuentan como existentes
+        assertEquals(6, resumed.getStats().read.get());
+        assertEquals(4, resumed.getStats().created.get());
+        assertEquals(2, resumed.getStats().existing.get());
+        assertEquals(0, resumed.getStats().errors.get());
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    /**
+     * Guarda los emails en memoria; los de <code>failing</code> hacen fallar
+     * su lote entero.
+     */
+    private static class FakeSignable implements Signable {
+
+        final Set<String> created = new HashSet<>();
+        final Set<String> failing = new HashSet<>();
+        final List<String> attempts = new ArrayList<>();
+
+        @Override
+        public synchronized List<SignUpStatus> signUpBatch(List<User> users) throws Exception {
+            List<SignUpStatus> results = new ArrayList<>();
+            for (User user : users) {
+                if (failing.contains(user.getEmail())) {
+                    throw new Exception("Fallo simulado");
+                }
+            }
+            for (User user : users) {
+                attempts.add(user.getEmail());
+                results.add(created.add(user.getEmail()) ? SignUpStatus.CREATED : SignUpStatus.EMAIL_EXISTS);
+            }
+            return results;
+        }
+
+        @Override
+        public User signUp(User user) throws Exception {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User signIn(User user) throws Exception {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
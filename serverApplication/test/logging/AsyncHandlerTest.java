@@ -0,0 +1,98 @@
+package logging;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class AsyncHandlerTest {
+
+    /**
+     * Destino que guarda lo que recibe, ya formateado.
+     */
+    private static class CollectingHandler extends Handler {
+
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        volatile boolean closed;
+
+        @Override
+        public void publish(LogRecord record) {
+            messages.add(new SimpleFormatter().formatMessage(record) + "@" + record.getSourceClassName());
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static LogRecord record(Level level, String logger, String message, Object... params) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(logger);
+        record.setParameters(params);
+        return record;
+    }
+
+    @Test
+    public void testRingKeepsOrderAndRejectsWhenFull() {
+        RecordRing ring = new RecordRing(4);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(record(Level.INFO, "a", "m" + i)));
+        }
+        assertFalse(ring.offer(record(Level.INFO, "a", "m4")));
+        assertEquals("m0", ring.poll().getMessage());
+        assertTrue(ring.offer(record(Level.INFO, "a", "m5")));
+        assertEquals("m1", ring.poll().getMessage());
+        assertEquals("m2", ring.poll().getMessage());
+        assertEquals("m3", ring.poll().getMessage());
+        assertEquals("m5", ring.poll().getMessage());
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testRateLimitIsPerLoggerAndSecond() {
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+        RateLimitFilter filter = new RateLimitFilter(2, now::get);
+        assertTrue(filter.isLoggable(record(Level.INFO, "a", "1")));
+        assertTrue(filter.isLoggable(record(Level.INFO, "a", "2")));
+        assertFalse(filter.isLoggable(record(Level.INFO, "a", "3")));
+        assertTrue(filter.isLoggable(record(Level.WARNING, "a", "aviso")));
+        assertTrue(filter.isLoggable(record(Level.INFO, "b", "1")));
+        assertEquals(1, filter.getSuppressed());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(filter.isLoggable(record(Level.INFO, "a", "4")));
+    }
+
+    @Test
+    public void testWriterFormatsRecordsAndCloseDrains() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncHandler handler = new AsyncHandler(new Handler[]{target}, 1024);
+        for (int i = 0; i < 500; i++) {
+            handler.publish(record(Level.INFO, "Model.Worker", "Mensaje {0}", i));
+        }
+        handler.close();
+        assertEquals(500 - handler.getDropped(), target.messages.size());
+        assertEquals("Mensaje 0@Model.Worker", target.messages.get(0));
+        assertEquals("log-writer", target.threads.get(0));
+        assertTrue(target.closed);
+        handler.publish(record(Level.INFO, "Model.Worker", "tarde"));
+        assertEquals(500 - handler.getDropped(), target.messages.size());
+    }
+}
@@ -0,0 +1,56 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+* @author Alder
+ */
+public class MetricsRegistryTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final MetricsRegistry registry = new MetricsRegistry(1000, now::get);
+
+    @Test
+    public void testSameNameAndLabelsReturnSameMetric() {
+        registry.counter("requests_total", "type", "a").increment();
+        registry.counter("requests_total", "type", "a").increment();
+        registry.counter("requests_total", "type", "b").increment();
+        assertSame(registry.timer("latency_seconds"), registry.timer("latency_seconds"));
+        assertEquals(2.0, registry.snapshot().get("requests_total{type=\"a\"}"), 0);
+        assertEquals(1.0, registry.snapshot().get("requests_total{type=\"b\"}"), 0);
+    }
+
+    @Test
+    public void testScrapeGroupsEachFamilyUnderOneType() {
+        registry.gauge("pool", () -> 3, "state", "active");
+        registry.counter("pool_created_total").add(5);
+        registry.gauge("pool", () -> 1, "state", "idle");
+        registry.counter("pool_rejected_total", () -> 7);
+        registry.timer("latency_seconds", "phase", "total").record(TimeUnit.MILLISECONDS.toNanos(2));
+        String text = registry.scrape();
+        assertEquals(text.indexOf("# TYPE pool gauge"), text.lastIndexOf("# TYPE pool "));
+        assertTrue(text.contains("pool{state=\"active\"} 3\npool{state=\"idle\"} 1\n"));
+        assertTrue(text.contains("# TYPE pool_created_total counter\npool_created_total 5\n"));
+        assertTrue(text.contains("# TYPE pool_rejected_total counter\npool_rejected_total 7\n"));
+        assertTrue(text.contains("latency_seconds{phase=\"total\",quantile=\"0.99\"} 0.00"));
+        assertTrue(text.contains("latency_seconds_count{phase=\"total\"} 1\n"));
+    }
+
+    @Test
+    public void testPercentilesComeFromTheLastWindow() {
+        Timer timer = registry.timer("latency_seconds");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(500));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+        // La ventana anterior, la del registro lento, sigue publicada
+        assertEquals(500_000, timer.getWindow().getValueAtPercentile(99), 5_000);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(1_000, timer.getWindow().getValueAtPercentile(99), 10);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        assertEquals(0, timer.getWindow().getTotalCount());
+        assertEquals(2, timer.getCount());
+    }
+}